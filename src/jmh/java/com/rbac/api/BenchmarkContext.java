@@ -0,0 +1,43 @@
+package com.rbac.api;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application without a web server against a private in-memory H2 database.
+ * Arguments are passed as command-line properties so they win over application.properties.
+ * To run against a real database instead, fork with
+ * {@code -jvmArgsAppend "-Dspring.datasource.url=... -Dspring.datasource.password=..."}.
+ */
+public final class BenchmarkContext {
+
+    private static final List<String> H2 = List.of(
+            "spring.datasource.url=jdbc:h2:mem:rbac-jmh;DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "spring.flyway.enabled=false",
+            "rbac.search.engine=memory");
+
+    private BenchmarkContext() {}
+
+    public static ConfigurableApplicationContext start(String... overrides) {
+        List<String> args = new ArrayList<>();
+        if (System.getProperty("spring.datasource.url") == null) {
+            H2.forEach(property -> args.add("--" + property));
+        }
+        args.add("--logging.level.root=WARN");
+        for (String override : overrides) {
+            args.add("--" + override);
+        }
+        return new SpringApplicationBuilder(RbacApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,71 @@
+package com.rbac.api.audit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Three request threads recording into the audit buffer while one writer drains it, against an
+ * {@link ArrayBlockingQueue} of the same capacity, which takes a lock on both sides. The producer
+ * score is what an audited request pays; a full buffer counts as a dropped event, not a stall.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class AuditBufferBenchmark {
+
+    private static final int CAPACITY = 65536;
+    private static final int BATCH_SIZE = 1000;
+
+    private final AuditEvent event = new AuditEvent(Instant.now(), AuditAction.LOGIN_SUCCEEDED, null,
+            UUID.randomUUID(), "admin", "127.0.0.1", null);
+    private final List<AuditEvent> batch = new ArrayList<>(BATCH_SIZE);
+
+    private MpscRingBuffer<AuditEvent> ringBuffer;
+    private ArrayBlockingQueue<AuditEvent> blockingQueue;
+
+    @Setup
+    public void setUp() {
+        ringBuffer = new MpscRingBuffer<>(CAPACITY);
+        blockingQueue = new ArrayBlockingQueue<>(CAPACITY);
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(3)
+    public boolean ringBufferOffer() {
+        return ringBuffer.offer(event);
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(1)
+    public void ringBufferDrain(Blackhole blackhole) {
+        blackhole.consume(ringBuffer.drain(batch::add, BATCH_SIZE));
+        batch.clear();
+    }
+
+    @Benchmark
+    @Group("blockingQueue")
+    @GroupThreads(3)
+    public boolean blockingQueueOffer() {
+        return blockingQueue.offer(event);
+    }
+
+    @Benchmark
+    @Group("blockingQueue")
+    @GroupThreads(1)
+    public void blockingQueueDrain(Blackhole blackhole) {
+        blackhole.consume(blockingQueue.drainTo(batch, BATCH_SIZE));
+        batch.clear();
+    }
+}
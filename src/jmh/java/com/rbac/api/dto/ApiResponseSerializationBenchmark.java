@@ -0,0 +1,82 @@
+package com.rbac.api.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rbac.api.dto.Dtos.ApiResponse;
+import com.rbac.api.dto.Dtos.CompactUserList;
+import com.rbac.api.dto.Dtos.UserResponse;
+import com.rbac.api.entity.Role;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiResponseSerializationBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int size;
+
+    /**
+     * plain: permissions re-encoded per user (the original shape);
+     * full: same JSON with the pre-encoded permission blocks; compact: the CompactUserList envelope.
+     */
+    @Param({ "plain", "full", "compact" })
+    private String view;
+
+    private ObjectWriter writer;
+    private ApiResponse<?> response;
+
+    @Setup
+    public void setUp() {
+        // Same defaults as the ObjectMapper Spring MVC uses
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        if (view.equals("plain")) {
+            mapper.addMixIn(UserResponse.class, PlainPermissions.class);
+        }
+        writer = mapper.writer();
+
+        Role[] roles = Role.values();
+        List<UserResponse> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Role role = roles[i % roles.length];
+            UserResponse user = new UserResponse();
+            user.setId(UUID.randomUUID());
+            user.setUsername("user" + i);
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@company.com");
+            user.setRole(role);
+            user.setPermissions(role.getPermissions());
+            user.setActive(true);
+            user.setCreatedAt(LocalDateTime.now());
+            user.setLastLogin(LocalDateTime.now());
+            users.add(user);
+        }
+        response = view.equals("compact") ? ApiResponse.success(CompactUserList.of(users, null)) : ApiResponse.success(users);
+    }
+
+    @Benchmark
+    public void serialize() throws IOException {
+        writer.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    private abstract static class PlainPermissions {
+        @JsonSerialize
+        public abstract List<String> getPermissions();
+    }
+}
@@ -0,0 +1,49 @@
+package com.rbac.api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login admission under contention. Limits are set high enough that every attempt is admitted,
+ * so the numbers are the cost of the lookups and the bucket CAS. {@code keys} controls how many
+ * distinct clients and usernames compete: 1 means every thread hits the same two buckets.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LoginThrottleBenchmark {
+
+    @Param({ "1", "10000" })
+    private int keys;
+
+    private LoginThrottle loginThrottle;
+    private String[] clients;
+    private String[] usernames;
+
+    @Setup
+    public void setUp() {
+        loginThrottle = new LoginThrottle(new SimpleMeterRegistry(),
+                Integer.MAX_VALUE, Duration.ofNanos(1), Integer.MAX_VALUE, Duration.ofNanos(1),
+                5, 50, Duration.ofMinutes(5), Duration.ofSeconds(1), Duration.ofMinutes(15), 100_000, Duration.ofMinutes(30));
+        clients = new String[keys];
+        usernames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            clients[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+            usernames[i] = "user" + i;
+        }
+    }
+
+    @Benchmark
+    public void acquire() {
+        int i = ThreadLocalRandom.current().nextInt(keys);
+        loginThrottle.acquire(clients[i], usernames[i]);
+    }
+}
@@ -0,0 +1,45 @@
+package com.rbac.api.security;
+
+import com.rbac.api.cluster.ClusterInvalidation;
+import com.rbac.api.entity.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenServiceBenchmark {
+
+    private TokenService tokenService;
+    private UUID userId;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        ClusterInvalidation clusterInvalidation = new ClusterInvalidation(null, null, new SimpleMeterRegistry(), false,
+                "rbac_invalidation", Duration.ofSeconds(10), Duration.ofSeconds(30));
+        TokenFences tokenFences = new TokenFences(null, clusterInvalidation, Duration.ofHours(1));
+        tokenService = new TokenService("", Duration.ofHours(1),
+                new TokenRevocationList(tokenFences, new SimpleMeterRegistry(), Duration.ofHours(1), 100_000),
+                tokenFences, clusterInvalidation);
+        userId = UUID.randomUUID();
+        token = tokenService.issue(userId, Role.MANAGER);
+    }
+
+    @Benchmark
+    public String issue() {
+        return tokenService.issue(userId, Role.MANAGER);
+    }
+
+    @Benchmark
+    public AccessToken verify() {
+        return tokenService.verify(token);
+    }
+}
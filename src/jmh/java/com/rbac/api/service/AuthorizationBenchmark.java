@@ -0,0 +1,110 @@
+package com.rbac.api.service;
+
+import com.rbac.api.BenchmarkContext;
+import com.rbac.api.dto.Dtos.AuthorizationCheck;
+import com.rbac.api.dto.Dtos.AuthorizationDecisions;
+import com.rbac.api.entity.PermissionRegistry;
+import com.rbac.api.entity.Role;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 10,000 (user, permission) decisions per call over {@code users} distinct users. {@code batch}
+ * is {@link AuthorizationService#decide}; with {@code cache=cold} the user cache is emptied
+ * before every call, so the cost includes loading all users in one query. {@code perUser} is
+ * what callers do without the endpoint: fetch each {@code UserResponse} and scan its
+ * permission list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorizationBenchmark {
+
+    private static final int CHECKS = 10_000;
+
+    @Param({ "100", "10000" })
+    private int users;
+
+    @Param({ "warm", "cold" })
+    private String cache;
+
+    private ConfigurableApplicationContext context;
+    private AuthorizationService authorizationService;
+    private UserService userService;
+    private UserCache userCache;
+    private List<AuthorizationCheck> checks;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        authorizationService = context.getBean(AuthorizationService.class);
+        userService = context.getBean(UserService.class);
+        userCache = context.getBean(UserCache.class);
+        List<UUID> ids = seed(context.getBean(JdbcTemplate.class));
+
+        List<String> permissions = PermissionRegistry.names();
+        SplittableRandom random = new SplittableRandom(42);
+        checks = new ArrayList<>(CHECKS);
+        for (int i = 0; i < CHECKS; i++) {
+            checks.add(new AuthorizationCheck(ids.get(i % users), permissions.get(random.nextInt(permissions.size()))));
+        }
+        authorizationService.decide(checks);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyCache() {
+        if (cache.equals("cold")) {
+            userCache.invalidateAll();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AuthorizationDecisions batch() {
+        return authorizationService.decide(checks);
+    }
+
+    @Benchmark
+    public int perUser() {
+        int allowed = 0;
+        for (AuthorizationCheck check : checks) {
+            if (userService.getUserById(check.getUserId()).getPermissions().contains(check.getPermission())) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    private List<UUID> seed(JdbcTemplate jdbcTemplate) {
+        Role[] roles = Role.values();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<UUID> ids = new ArrayList<>(users);
+        List<Object[]> batch = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            batch.add(new Object[] {
+                    id, "authz" + i, "$2a$10$" + "x".repeat(53), "User " + i, "authz" + i + "@company.com",
+                    roles[i % roles.length].name(), i % 10 != 0, now, now });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, password, name, email, role, is_active, created_at, updated_at, version) " +
+                                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)", batch);
+        return ids;
+    }
+}
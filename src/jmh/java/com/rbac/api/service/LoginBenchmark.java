@@ -0,0 +1,49 @@
+package com.rbac.api.service;
+
+import com.rbac.api.BenchmarkContext;
+import com.rbac.api.config.DataInitializer;
+import com.rbac.api.dto.Dtos.LoginRequest;
+import com.rbac.api.dto.Dtos.LoginResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full login path (cache, BCrypt verify, last-login buffer, token issue) against an in-memory H2 database
+ * seeded by {@code DataInitializer}. Run with {@code -p bcryptCost=4} to see everything except the hash.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginBenchmark {
+
+    @Param({ "10" })
+    private int bcryptCost;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private LoginRequest request;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("rbac.security.password.bcrypt-cost=" + bcryptCost);
+        userService = context.getBean(UserService.class);
+        context.getBean(DataInitializer.class).seeded().join();
+
+        request = new LoginRequest("admin", "admin123");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public LoginResponse login() {
+        return userService.login(request);
+    }
+}
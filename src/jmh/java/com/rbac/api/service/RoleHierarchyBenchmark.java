@@ -0,0 +1,68 @@
+package com.rbac.api.service;
+
+import com.rbac.api.entity.CustomRole;
+import com.rbac.api.entity.Role;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks against a hierarchy of {@code depth} custom roles, each inheriting from the previous
+ * one on top of {@code VIEWER}. Checks on the deepest role cost the same at any depth because the
+ * closure is precomputed; {@code rebuild} is what a change pays to produce the next snapshot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoleHierarchyBenchmark {
+
+    @Param({ "1", "1000" })
+    private int depth;
+
+    private List<CustomRole> customRoles;
+    private RoleHierarchy.Snapshot snapshot;
+    private String deepest;
+
+    @Setup
+    public void setUp() {
+        customRoles = new ArrayList<>(depth);
+        String parent = Role.VIEWER.name();
+        List<String> catalog = Role.catalog();
+        for (int i = 0; i < depth; i++) {
+            CustomRole role = new CustomRole("CUSTOM_" + i);
+            role.setLevel(Role.VIEWER.getLevel());
+            role.setParents(Set.of(parent));
+            role.setGrants(Set.of(catalog.get(i % catalog.size())));
+            customRoles.add(role);
+            parent = role.getName();
+        }
+        deepest = parent;
+        snapshot = RoleHierarchy.Snapshot.build(customRoles);
+    }
+
+    @Benchmark
+    public boolean hasPermission() {
+        return snapshot.byName().get(deepest).hasPermission("inventory.read");
+    }
+
+    @Benchmark
+    public boolean includesViewer() {
+        return snapshot.byName().get(deepest).includes(snapshot.byName().get("VIEWER"));
+    }
+
+    @Benchmark
+    public boolean isAtLeastManager() {
+        return snapshot.byName().get(deepest).isAtLeast(Role.MANAGER);
+    }
+
+    @Benchmark
+    public RoleHierarchy.Snapshot rebuild() {
+        return RoleHierarchy.Snapshot.build(customRoles);
+    }
+}
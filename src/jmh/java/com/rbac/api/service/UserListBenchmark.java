@@ -0,0 +1,85 @@
+package com.rbac.api.service;
+
+import com.rbac.api.BenchmarkContext;
+import com.rbac.api.dto.Dtos.UserResponse;
+import com.rbac.api.entity.Role;
+import com.rbac.api.entity.User;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full user list on a seeded table: managed entities copied into DTOs ({@code entity}) against the
+ * {@code UserSummary} constructor projection behind {@link UserService#getAllUsers()} ({@code projection}).
+ * Add {@code -prof gc} for allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class UserListBenchmark {
+
+    @Param({ "100000" })
+    private int rows;
+
+    @Param({ "entity", "projection" })
+    private String path;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        userService = context.getBean(UserService.class);
+        entityManager = context.getBean(EntityManager.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserResponse> listUsers() {
+        if (path.equals("projection")) {
+            return userService.getAllUsers();
+        }
+        return readOnly.execute(status -> entityManager
+                .createQuery("SELECT u FROM User u ORDER BY u.createdAt DESC", User.class)
+                .getResultStream()
+                .map(userService::toUserResponse)
+                .toList());
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Role[] roles = Role.values();
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Timestamp createdAt = Timestamp.valueOf(now.minusSeconds(i));
+            batch.add(new Object[] {
+                    UUID.randomUUID(), "user" + i, "$2a$10$" + "x".repeat(53), "User " + i, "user" + i + "@company.com",
+                    roles[i % roles.length].name(), true, createdAt, createdAt, i % 2 == 0 ? createdAt : null });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, password, name, email, role, is_active, created_at, updated_at, last_login, version) " +
+                                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)", batch);
+    }
+}
@@ -0,0 +1,35 @@
+package com.rbac.api.service;
+
+import com.rbac.api.dto.Dtos.UserResponse;
+import com.rbac.api.entity.Role;
+import com.rbac.api.entity.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMappingBenchmark {
+
+    private CachedUser user;
+
+    @Setup
+    public void setUp() {
+        User entity = new User("jdoe", "$2a$10$abcdefghijklmnopqrstuu", "Jane Doe", "jdoe@company.com", Role.MANAGER);
+        entity.setId(UUID.randomUUID());
+        entity.setCreatedAt(LocalDateTime.now());
+        entity.setLastLogin(LocalDateTime.now());
+        user = CachedUser.of(entity);
+    }
+
+    @Benchmark
+    public UserResponse toUserResponse() {
+        return UserService.toUserResponse(user, user.role().getPermissions());
+    }
+}
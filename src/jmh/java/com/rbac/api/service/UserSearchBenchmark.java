@@ -0,0 +1,117 @@
+package com.rbac.api.service;
+
+import com.rbac.api.BenchmarkContext;
+import com.rbac.api.dto.Dtos.UserResponse;
+import com.rbac.api.entity.Role;
+import com.rbac.api.entity.User;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User search on a seeded table: the unindexed, unranked {@code LIKE '%q%'} query the search
+ * endpoint used to run ({@code like}) against {@link UserService#searchUsers} ({@code ranked}),
+ * which is the {@code pg_trgm} query on PostgreSQL and the in-memory trigram index on H2.
+ * <p>
+ * The figures that matter come from PostgreSQL: fork with
+ * {@code -jvmArgsAppend "-Dspring.datasource.url=... -Dspring.datasource.password=..."}. The rows
+ * are seeded once and kept, so later forks and runs reuse them; remove them with
+ * {@code DELETE FROM users WHERE username LIKE 'search-%'}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class UserSearchBenchmark {
+
+    private static final String LIKE = "SELECT u FROM User u WHERE LOWER(u.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                                       "OR LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%'))";
+    private static final int BATCH = 10_000;
+
+    @Param({ "1000000" })
+    private int rows;
+
+    // A username, a substring of many names, a substring of few, and a two-character prefix
+    @Param({ "search-12345", "abc", "fe0b", "ab" })
+    private String query;
+
+    @Param({ "like", "ranked" })
+    private String path;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        userService = context.getBean(UserService.class);
+        entityManager = context.getBean(EntityManager.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserResponse> search() {
+        if (path.equals("ranked")) {
+            return userService.searchUsers(query, null);
+        }
+        return readOnly.execute(status -> entityManager
+                .createQuery(LIKE, User.class)
+                .setParameter("search", query)
+                .getResultStream()
+                .map(userService::toUserResponse)
+                .toList());
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Long seeded = jdbcTemplate.queryForObject("SELECT count(*) FROM users WHERE username LIKE 'search-%'", Long.class);
+        if (seeded != null && seeded >= rows) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'search-%'");
+        // No administrators, so the role_counts guard row stays accurate on a real database
+        Role[] roles = { Role.MANAGER, Role.WAREHOUSE_CLERK, Role.AUDITOR, Role.VIEWER };
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < rows; i++) {
+            Timestamp createdAt = Timestamp.valueOf(now.minusSeconds(i));
+            // Hex names, so short substrings match a realistic spread of rows
+            String name = "User " + Long.toHexString(random.nextLong());
+            batch.add(new Object[] {
+                    UUID.randomUUID(), "search-" + i, "$2a$10$" + "x".repeat(53), name, "search-" + i + "@company.com",
+                    roles[i % roles.length].name(), true, createdAt, createdAt });
+            if (batch.size() == BATCH || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (id, username, password, name, email, role, is_active, created_at, updated_at, version) " +
+                                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)", batch);
+                batch.clear();
+            }
+        }
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if ("PostgreSQL".equals(product)) {
+            jdbcTemplate.execute("ANALYZE users");
+        }
+    }
+}
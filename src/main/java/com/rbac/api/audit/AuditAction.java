@@ -0,0 +1,11 @@
+package com.rbac.api.audit;
+
+public enum AuditAction {
+    LOGIN_SUCCEEDED,
+    LOGIN_FAILED,
+    USER_CREATED,
+    USER_UPDATED,
+    USER_ROLE_CHANGED,
+    USER_DELETED,
+    USERS_IMPORTED
+}
@@ -0,0 +1,13 @@
+package com.rbac.api.audit;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One audited action as it travels from the request thread to the writer. {@code actorId} and
+ * {@code client} describe who made the request, {@code subjectId} and {@code subjectName} the
+ * user it was about.
+ */
+public record AuditEvent(Instant occurredAt, AuditAction action, UUID actorId, UUID subjectId,
+                         String subjectName, String client, String detail) {
+}
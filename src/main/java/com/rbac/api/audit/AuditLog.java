@@ -0,0 +1,246 @@
+package com.rbac.api.audit;
+
+import com.rbac.api.security.AccessToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records audit events without touching the database on the request path. Events go into a
+ * lock-free ring buffer; a single writer thread drains it and inserts the events in JDBC
+ * batches into the partitioned {@code audit_events} table. The writer starts before the web server
+ * and stops after it, once the buffer is empty.
+ * <p>
+ * When the buffer is full, the {@code drop} policy discards the event at once. The {@code wait}
+ * policy gives the writer up to {@code rbac.audit.overflow-wait} to make room first. Either way a
+ * discarded event is counted in {@code rbac.audit.dropped}, as is a batch the database rejected
+ * on every attempt.
+ */
+@Component
+public class AuditLog implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_events (occurred_at, action, actor_id, subject_id, subject_name, client, detail) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final long WRITE_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public enum OverflowPolicy { DROP, WAIT }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MpscRingBuffer<AuditEvent> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final long overflowWaitNanos;
+    private final Counter recorded;
+    private final Counter written;
+    private final Counter droppedBufferFull;
+    private final Counter droppedWriteFailed;
+    private final Timer writeTimer;
+    private volatile Thread writer;
+    private volatile boolean running;
+
+    public AuditLog(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                    @Value("${rbac.audit.buffer-capacity:65536}") int bufferCapacity,
+                    @Value("${rbac.audit.batch-size:1000}") int batchSize,
+                    @Value("${rbac.audit.flush-interval:PT0.2S}") Duration flushInterval,
+                    @Value("${rbac.audit.overflow-policy:drop}") String overflowPolicy,
+                    @Value("${rbac.audit.overflow-wait:PT0.01S}") Duration overflowWait) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.buffer = new MpscRingBuffer<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.toUpperCase(Locale.ROOT));
+        this.overflowWaitNanos = overflowWait.toNanos();
+
+        this.recorded = Counter.builder("rbac.audit.recorded")
+                .description("Audit events accepted into the buffer")
+                .register(meterRegistry);
+        this.written = Counter.builder("rbac.audit.written")
+                .description("Audit events stored in the database")
+                .register(meterRegistry);
+        this.droppedBufferFull = Counter.builder("rbac.audit.dropped")
+                .description("Audit events lost")
+                .tag("reason", "buffer_full")
+                .register(meterRegistry);
+        this.droppedWriteFailed = Counter.builder("rbac.audit.dropped")
+                .description("Audit events lost")
+                .tag("reason", "write_failed")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("rbac.audit.write")
+                .description("Time to insert one batch of audit events")
+                .register(meterRegistry);
+        Gauge.builder("rbac.audit.buffer.size", buffer, MpscRingBuffer::size)
+                .description("Audit events waiting for the writer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records an event about {@code subjectId}, attributed to the caller of the current request.
+     */
+    public void record(AuditAction action, UUID subjectId, String subjectName, String detail) {
+        offer(newEvent(action, subjectId, subjectName, detail));
+    }
+
+    /**
+     * Like {@link #record}, but only once the current transaction commits, so rolled-back
+     * changes leave no trace. The caller is captured now, while the request is still bound.
+     */
+    public void recordAfterCommit(AuditAction action, UUID subjectId, String subjectName, String detail) {
+        AuditEvent event = newEvent(action, subjectId, subjectName, detail);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(event);
+                }
+            });
+        } else {
+            offer(event);
+        }
+    }
+
+    public int pendingCount() {
+        return buffer.size();
+    }
+
+    private void offer(AuditEvent event) {
+        if (buffer.offer(event)) {
+            recorded.increment();
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.WAIT) {
+            long deadline = System.nanoTime() + overflowWaitNanos;
+            LockSupport.unpark(writer);
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(50_000);
+                if (buffer.offer(event)) {
+                    recorded.increment();
+                    return;
+                }
+            }
+        }
+        droppedBufferFull.increment();
+    }
+
+    private static AuditEvent newEvent(AuditAction action, UUID subjectId, String subjectName, String detail) {
+        UUID actorId = null;
+        String client = null;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            if (request.getAttribute(AccessToken.REQUEST_ATTRIBUTE) instanceof AccessToken token) {
+                actorId = token.userId();
+            }
+            client = request.getRemoteAddr();
+        }
+        return new AuditEvent(Instant.now(), action, actorId, subjectId, truncate(subjectName, 100), client, truncate(detail, 500));
+    }
+
+    private void runWriter() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            buffer.drain(batch::add, batchSize);
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+                continue;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writeTimer.record(() -> jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, event) -> {
+                    statement.setObject(1, OffsetDateTime.ofInstant(event.occurredAt(), ZoneOffset.UTC));
+                    statement.setString(2, event.action().name());
+                    statement.setObject(3, event.actorId());
+                    statement.setObject(4, event.subjectId());
+                    statement.setString(5, event.subjectName());
+                    statement.setString(6, event.client());
+                    statement.setString(7, event.detail());
+                }));
+                written.increment(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_WRITE_ATTEMPTS || !running) {
+                    droppedWriteFailed.increment(batch.size());
+                    log.warn("Dropping {} audit events after {} failed attempts", batch.size(), attempt, e);
+                    return;
+                }
+                LockSupport.parkNanos(WRITE_RETRY_NANOS * attempt);
+            }
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::runWriter, "audit-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = writer;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("Audit writer did not finish within 10s, {} events were not stored", buffer.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Below the web server's phases, so the events of requests still in flight at shutdown are written
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
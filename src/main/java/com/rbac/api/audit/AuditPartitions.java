@@ -0,0 +1,110 @@
+package com.rbac.api.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps monthly partitions of {@code audit_events} ahead of the clock, so the writer never lands
+ * in the default partition, and drops the months that fell out of {@code rbac.audit.retention-months}.
+ * It runs at startup and hourly after that.
+ * Only PostgreSQL has the partitioned table; on other databases this does nothing.
+ */
+@Component
+public class AuditPartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditPartitions.class);
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("audit_events_y(\\d{4})m(\\d{2})");
+    private static final String PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'audit_events'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private volatile Boolean partitioned;
+
+    public AuditPartitions(JdbcTemplate jdbcTemplate,
+                           @Value("${rbac.audit.partitions-ahead:2}") int monthsAhead,
+                           @Value("${rbac.audit.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    void maintain() {
+        if (!isPartitioned()) {
+            return;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= monthsAhead; i++) {
+            create(current.plusMonths(i));
+        }
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths - 1L);
+            for (String name : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class)) {
+                YearMonth month = monthOf(name);
+                if (month != null && month.isBefore(oldestKept)) {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+                    log.info("Dropped audit partition {}", name);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.warn("Failed to maintain audit partitions, events go to the default partition until the next attempt", e);
+        }
+    }
+
+    private void create(YearMonth month) {
+        // A month the default partition already holds rows for cannot be attached; those rows stay where they are
+        String sql = "CREATE TABLE IF NOT EXISTS " + nameOf(month) + " PARTITION OF audit_events " +
+                "FOR VALUES FROM ('" + month.atDay(1) + " 00:00:00+00') TO ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')";
+        jdbcTemplate.execute(sql);
+    }
+
+    private boolean isPartitioned() {
+        Boolean current = partitioned;
+        if (current == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            current = "PostgreSQL".equals(product);
+            partitioned = current;
+        }
+        return current;
+    }
+
+    static String nameOf(YearMonth month) {
+        return String.format("audit_events_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    static YearMonth monthOf(String partitionName) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.rbac.api.cluster;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps per-node state coherent across instances through PostgreSQL {@code NOTIFY}. Publishing
+ * inside a transaction queues the notification until commit, so other nodes never evict for a
+ * change that rolled back. Each node listens on one dedicated connection outside the pool and
+ * hands the messages to the handlers registered here as they arrive. The listener starts before
+ * the web server and stops after it.
+ * <p>
+ * Notifications sent while a node is not listening are lost, so every (re)connect runs the
+ * resync handlers, which drop or reload everything they hold. On databases other than
+ * PostgreSQL, and with {@code rbac.cluster.invalidation.enabled=false}, nothing is published
+ * and nothing is listened to.
+ */
+@Component
+public class ClusterInvalidation implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterInvalidation.class);
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+    private static final char USERS = 'u';
+    private static final char ROLES = 'r';
+    private static final char TOKENS = 't';
+    private static final char FENCES = 'f';
+    private static final char STATS = 's';
+    // NOTIFY payloads are limited to 8000 bytes; a UUID and its separator take 37, a UUID, an
+    // epoch second and their separators at most 58
+    private static final int IDS_PER_MESSAGE = 200;
+    private static final int FENCES_PER_MESSAGE = 130;
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final long validationIntervalMillis;
+    private final long maxBackoffNanos;
+    private final boolean enabled;
+    private final List<Consumer<UUID>> userHandlers = new CopyOnWriteArrayList<>();
+    private final List<Runnable> roleHandlers = new CopyOnWriteArrayList<>();
+    private final List<TokenHandler> tokenHandlers = new CopyOnWriteArrayList<>();
+    private final List<FenceHandler> fenceHandlers = new CopyOnWriteArrayList<>();
+    private final List<Runnable> statsHandlers = new CopyOnWriteArrayList<>();
+    private final List<Runnable> resyncHandlers = new CopyOnWriteArrayList<>();
+    private final Counter published;
+    private final Counter received;
+    private final Counter resyncs;
+    private volatile Boolean postgres;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile Connection listenerConnection;
+    private volatile Thread listener;
+
+    /**
+     * Receives a token revocation published by another node.
+     */
+    @FunctionalInterface
+    public interface TokenHandler {
+        void revoked(long tokenId, UUID userId, long expiresAtEpochSecond);
+    }
+
+    /**
+     * Receives a token fence raised by another node: the user's tokens issued before
+     * {@code validAfterEpochSecond} are no longer accepted.
+     */
+    @FunctionalInterface
+    public interface FenceHandler {
+        void fenced(UUID userId, long validAfterEpochSecond);
+    }
+
+    public ClusterInvalidation(JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry,
+                               @Value("${rbac.cluster.invalidation.enabled:true}") boolean enabled,
+                               @Value("${rbac.cluster.invalidation.channel:rbac_invalidation}") String channel,
+                               @Value("${rbac.cluster.invalidation.validation-interval:PT10S}") Duration validationInterval,
+                               @Value("${rbac.cluster.invalidation.max-reconnect-backoff:PT30S}") Duration maxReconnectBackoff) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("rbac.cluster.invalidation.channel must be a lower-case SQL identifier, got " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.validationIntervalMillis = validationInterval.toMillis();
+        this.maxBackoffNanos = maxReconnectBackoff.toNanos();
+        this.published = Counter.builder("rbac.cluster.invalidations")
+                .description("Invalidation messages exchanged with other nodes")
+                .tag("direction", "published")
+                .register(meterRegistry);
+        this.received = Counter.builder("rbac.cluster.invalidations")
+                .description("Invalidation messages exchanged with other nodes")
+                .tag("direction", "received")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("rbac.cluster.resyncs")
+                .description("Full resyncs after the invalidation listener (re)connected")
+                .register(meterRegistry);
+        Gauge.builder("rbac.cluster.listener.connected", this, node -> node.connected ? 1 : 0)
+                .description("Whether this node is listening for invalidations")
+                .register(meterRegistry);
+    }
+
+    public void onUsersChanged(Consumer<UUID> handler) {
+        userHandlers.add(handler);
+    }
+
+    public void onRolesChanged(Runnable handler) {
+        roleHandlers.add(handler);
+    }
+
+    public void onTokenRevoked(TokenHandler handler) {
+        tokenHandlers.add(handler);
+    }
+
+    public void onTokensFenced(FenceHandler handler) {
+        fenceHandlers.add(handler);
+    }
+
+    public void onStatsChanged(Runnable handler) {
+        statsHandlers.add(handler);
+    }
+
+    public void onResync(Runnable handler) {
+        resyncHandlers.add(handler);
+    }
+
+    /**
+     * Tells the other nodes that these users changed. Call it inside the transaction that
+     * changed them, or after the change committed.
+     */
+    public void publishUsers(Collection<UUID> userIds) {
+        if (userIds.isEmpty() || !isActive()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(Math.min(userIds.size(), IDS_PER_MESSAGE));
+        for (UUID id : userIds) {
+            ids.add(id.toString());
+            if (ids.size() == IDS_PER_MESSAGE) {
+                publish(USERS, String.join(",", ids));
+                ids.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            publish(USERS, String.join(",", ids));
+        }
+    }
+
+    public void publishRolesChanged() {
+        if (isActive()) {
+            publish(ROLES, "");
+        }
+    }
+
+    /**
+     * Tells the other nodes that user counts changed: a user was created or deleted, or changed
+     * role or active flag.
+     */
+    public void publishStatsChanged() {
+        if (isActive()) {
+            publish(STATS, "");
+        }
+    }
+
+    public void publishTokenRevoked(long tokenId, UUID userId, long expiresAtEpochSecond) {
+        if (isActive()) {
+            publish(TOKENS, tokenId + "/" + userId + "/" + expiresAtEpochSecond);
+        }
+    }
+
+    /**
+     * Tells the other nodes to refuse these users' tokens issued before
+     * {@code validAfterEpochSecond}. Call it inside the transaction that stores the fence.
+     */
+    public void publishTokensFenced(Collection<UUID> userIds, long validAfterEpochSecond) {
+        if (userIds.isEmpty() || !isActive()) {
+            return;
+        }
+        List<String> fences = new ArrayList<>(Math.min(userIds.size(), FENCES_PER_MESSAGE));
+        for (UUID id : userIds) {
+            fences.add(id + "/" + validAfterEpochSecond);
+            if (fences.size() == FENCES_PER_MESSAGE) {
+                publish(FENCES, String.join(",", fences));
+                fences.clear();
+            }
+        }
+        if (!fences.isEmpty()) {
+            publish(FENCES, String.join(",", fences));
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void publish(char type, String body) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> null, channel, nodeId + " " + type + " " + body);
+        published.increment();
+    }
+
+    private boolean isActive() {
+        if (!enabled) {
+            return false;
+        }
+        Boolean current = postgres;
+        if (current == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            current = "PostgreSQL".equals(product);
+            postgres = current;
+        }
+        return current;
+    }
+
+    private void listen() {
+        long backoff = MIN_BACKOFF_NANOS;
+        while (running) {
+            try {
+                if (!isActive()) {
+                    log.info("Not on PostgreSQL, cross-node invalidation is off");
+                    return;
+                }
+                try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(), connectionProperties())) {
+                    listenerConnection = connection;
+                    PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                    connected = true;
+                    backoff = MIN_BACKOFF_NANOS;
+                    resync();
+                    while (running) {
+                        PGNotification[] notifications = pgConnection.getNotifications((int) validationIntervalMillis);
+                        if (notifications == null || notifications.length == 0) {
+                            // A silent network failure would otherwise look like a quiet cluster
+                            if (!connection.isValid(5)) {
+                                throw new SQLException("Listener connection is no longer valid");
+                            }
+                            continue;
+                        }
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Invalidation listener disconnected, reconnecting in {} ms", TimeUnit.NANOSECONDS.toMillis(backoff), e);
+            } finally {
+                connected = false;
+                listenerConnection = null;
+            }
+            LockSupport.parkNanos(this, backoff);
+            backoff = Math.min(backoff * 2, maxBackoffNanos);
+        }
+    }
+
+    // Named so the connection can be told apart from the pool in pg_stat_activity
+    private Properties connectionProperties() {
+        Properties properties = new Properties();
+        String username = dataSourceProperties.determineUsername();
+        String password = dataSourceProperties.determinePassword();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        properties.setProperty("ApplicationName", "rbac-invalidation-listener");
+        return properties;
+    }
+
+    private void resync() {
+        resyncs.increment();
+        for (Runnable handler : resyncHandlers) {
+            try {
+                handler.run();
+            } catch (RuntimeException e) {
+                log.warn("Resync handler failed", e);
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        // "<node> <type> <body>"; a node skips its own messages, it has already applied them
+        int first = payload.indexOf(' ');
+        if (first < 0 || first + 2 >= payload.length() || payload.startsWith(nodeId + " ")) {
+            return;
+        }
+        received.increment();
+        char type = payload.charAt(first + 1);
+        String body = payload.substring(Math.min(first + 3, payload.length()));
+        try {
+            switch (type) {
+                case USERS -> {
+                    for (String id : body.split(",")) {
+                        UUID userId = UUID.fromString(id);
+                        userHandlers.forEach(handler -> handler.accept(userId));
+                    }
+                }
+                case ROLES -> roleHandlers.forEach(Runnable::run);
+                case STATS -> statsHandlers.forEach(Runnable::run);
+                case TOKENS -> {
+                    // "<token id>/<user id>/<expiry>"
+                    String[] fields = body.split("/", 3);
+                    long tokenId = Long.parseLong(fields[0]);
+                    UUID userId = UUID.fromString(fields[1]);
+                    long expiresAt = Long.parseLong(fields[2]);
+                    tokenHandlers.forEach(handler -> handler.revoked(tokenId, userId, expiresAt));
+                }
+                case FENCES -> {
+                    for (String fence : body.split(",")) {
+                        int separator = fence.indexOf('/');
+                        UUID userId = UUID.fromString(fence.substring(0, separator));
+                        long validAfter = Long.parseLong(fence.substring(separator + 1));
+                        fenceHandlers.forEach(handler -> handler.fenced(userId, validAfter));
+                    }
+                }
+                default -> log.debug("Ignoring invalidation of unknown type {}", type);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply invalidation {}", payload, e);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled) {
+            Thread thread = new Thread(this::listen, "cluster-invalidation-listener");
+            thread.setDaemon(true);
+            listener = thread;
+            thread.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = listener;
+        if (thread == null) {
+            return;
+        }
+        Connection connection = listenerConnection;
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Closing only interrupts the wait; the listener exits either way
+            }
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Listens before the web server takes requests and until it has finished them
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
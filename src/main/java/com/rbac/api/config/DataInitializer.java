@@ -1,38 +1,134 @@
 package com.rbac.api.config;
 
 import com.rbac.api.entity.Role;
-import com.rbac.api.entity.User;
-import com.rbac.api.repository.UserRepository;
+import com.rbac.api.repository.RoleCountRepository;
+import com.rbac.api.security.PasswordHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Seeds the demo accounts into an empty database. Seeding runs on the application task executor
+ * so it does not delay readiness, and writes all accounts with one guarded multi-row INSERT: the statement
+ * inserts nothing once any user exists, and an instance that loses a startup race fails on the
+ * unique keys as a whole instead of seeding twice.
+ */
 @Component
 public class DataInitializer implements CommandLineRunner {
 
-    private final UserRepository userRepository;
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
+    private static final String COLUMNS = "id, username, password, name, email, role, is_active, created_at, updated_at, version";
+    // Parameters inside VALUES carry no column type, so the ones the driver sends untyped are cast
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP), ?)";
+
+    private record DemoUser(String username, String password, String name, String email, Role role) {}
+
+    private static final List<DemoUser> DEMO_USERS = List.of(
+            new DemoUser("admin", "admin123", "System Administrator", "admin@company.com", Role.ADMINISTRATOR),
+            new DemoUser("manager", "manager123", "Operations Manager", "manager@company.com", Role.MANAGER),
+            new DemoUser("clerk", "clerk123", "Warehouse Clerk", "clerk@company.com", Role.WAREHOUSE_CLERK),
+            new DemoUser("auditor", "auditor123", "Internal Auditor", "auditor@company.com", Role.AUDITOR),
+            new DemoUser("viewer", "viewer123", "Guest Viewer", "viewer@company.com", Role.VIEWER));
 
-    public DataInitializer(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RoleCountRepository roleCountRepository;
+    private final PasswordHasher passwordHasher;
+    private final TaskExecutor taskExecutor;
+    private final CompletableFuture<Void> seeded = new CompletableFuture<>();
+
+    public DataInitializer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           RoleCountRepository roleCountRepository, PasswordHasher passwordHasher,
+                           @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.roleCountRepository = roleCountRepository;
+        this.passwordHasher = passwordHasher;
+        this.taskExecutor = taskExecutor;
     }
 
     @Override
     public void run(String... args) {
-        if (userRepository.count() == 0) {
-            System.out.println("Initializing demo user accounts...");
-            createDemoUsers();
-            System.out.println("Demo accounts created successfully!");
-        } else {
-            System.out.println("Database already contains users, skipping initialization");
-        }
+        taskExecutor.execute(() -> {
+            try {
+                seed();
+                seeded.complete(null);
+            } catch (RuntimeException e) {
+                log.warn("Demo account initialization failed", e);
+                seeded.completeExceptionally(e);
+            }
+        });
     }
 
-    private void createDemoUsers() {
-        userRepository.save(new User("admin", "admin123", "System Administrator", "admin@company.com", Role.ADMINISTRATOR));
-        userRepository.save(new User("manager", "manager123", "Operations Manager", "manager@company.com", Role.MANAGER));
-        userRepository.save(new User("clerk", "clerk123", "Warehouse Clerk", "clerk@company.com", Role.WAREHOUSE_CLERK));
-        userRepository.save(new User("auditor", "auditor123", "Internal Auditor", "auditor@company.com", Role.AUDITOR));
-        userRepository.save(new User("viewer", "viewer123", "Guest Viewer", "viewer@company.com", Role.VIEWER));
-        
-        System.out.println("Created 5 demo accounts: admin, manager, clerk, auditor, viewer");
+    /**
+     * Completes once seeding has finished or was skipped.
+     */
+    public CompletableFuture<Void> seeded() {
+        return seeded;
+    }
+
+    private void seed() {
+        // Cheap check first, so a populated database never pays for the password hashes
+        if (!jdbcTemplate.queryForList("SELECT id FROM users FETCH FIRST 1 ROWS ONLY").isEmpty()) {
+            log.info("Database already contains users, skipping initialization");
+            return;
+        }
+
+        log.info("Initializing demo user accounts");
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object> values = new ArrayList<>(DEMO_USERS.size() * 10);
+        long administrators = 0;
+        for (DemoUser user : DEMO_USERS) {
+            values.add(UUID.randomUUID());
+            values.add(user.username());
+            values.add(passwordHasher.hash(user.password()));
+            values.add(user.name());
+            values.add(user.email());
+            values.add(user.role().name());
+            values.add(true);
+            values.add(now);
+            values.add(now);
+            values.add(0L);
+            if (user.role() == Role.ADMINISTRATOR) {
+                administrators++;
+            }
+        }
+        String sql = "INSERT INTO users (" + COLUMNS + ") SELECT * FROM (VALUES " +
+                     String.join(", ", Collections.nCopies(DEMO_USERS.size(), ROW)) +
+                     ") AS demo (" + COLUMNS + ") WHERE NOT EXISTS (SELECT 1 FROM users)";
+
+        long seededAdministrators = administrators;
+        try {
+            Integer inserted = transactionTemplate.execute(status -> {
+                int rows = jdbcTemplate.update(sql, values.toArray());
+                if (rows > 0) {
+                    roleCountRepository.add(Role.ADMINISTRATOR, seededAdministrators);
+                }
+                return rows;
+            });
+            if (inserted != null && inserted > 0) {
+                log.info("Created {} demo accounts: admin, manager, clerk, auditor, viewer", inserted);
+            } else {
+                log.info("Database already contains users, skipping initialization");
+            }
+        } catch (DuplicateKeyException e) {
+            log.info("Demo accounts were created by another instance, skipping initialization");
+        }
     }
 }
@@ -0,0 +1,26 @@
+package com.rbac.api.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background work runs on the shared task scheduler: {@code @Scheduled} jobs, and the one-off
+ * refreshes that beans hand to it. Work that needs a thread of its own for a blocking loop lives in
+ * a {@link SmartLifecycle} bean, started and stopped with the context.
+ * <p>
+ * Neither may wait for a first use under {@code spring.main.lazy-initialization}. Spring Boot
+ * already creates beans with {@code @Scheduled} methods eagerly; the filter here does the same for
+ * lifecycle beans.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter lifecycleLazyInitializationExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(SmartLifecycle.class);
+    }
+}
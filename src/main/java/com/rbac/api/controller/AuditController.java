@@ -0,0 +1,38 @@
+package com.rbac.api.controller;
+
+import com.rbac.api.dto.Dtos.*;
+import com.rbac.api.service.AuditService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/audit")
+@CrossOrigin(origins = "*")
+public class AuditController {
+
+    private static final String AUDIT_VIEW = "audit.view";
+
+    private final AuditService auditService;
+
+    public AuditController(AuditService auditService) {
+        this.auditService = auditService;
+    }
+
+    // from/to are ISO-8601 instants, e.g. 2024-05-01T00:00:00Z; to is exclusive
+    @GetMapping
+    public ResponseEntity<ApiResponse<AuditPage>> getEvents(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
+        Permissions.require(request, AUDIT_VIEW);
+        return ResponseEntity.ok(ApiResponse.success(auditService.getEvents(from, to, action, userId, cursor, limit)));
+    }
+}
@@ -1,7 +1,12 @@
 package com.rbac.api.controller;
 
 import com.rbac.api.dto.Dtos.*;
+import com.rbac.api.exception.Exceptions.AuthenticationException;
+import com.rbac.api.security.AccessToken;
+import com.rbac.api.security.LoginThrottle;
+import com.rbac.api.security.TokenService;
 import com.rbac.api.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,15 +17,28 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final UserService userService;
+    private final TokenService tokenService;
+    private final LoginThrottle loginThrottle;
 
-    public AuthController(UserService userService) {
+    public AuthController(UserService userService, TokenService tokenService, LoginThrottle loginThrottle) {
         this.userService = userService;
+        this.tokenService = tokenService;
+        this.loginThrottle = loginThrottle;
     }
 
+    // Throttled before the service runs, so rejected attempts never reach the cache, the database or the hashing pool
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest request) {
-        LoginResponse response = userService.login(request);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        String client = httpRequest.getRemoteAddr();
+        loginThrottle.acquire(client, request.getUsername());
+        try {
+            LoginResponse response = userService.login(request);
+            loginThrottle.succeeded(request.getUsername());
+            return ResponseEntity.ok(response);
+        } catch (AuthenticationException e) {
+            loginThrottle.failed(client, request.getUsername());
+            throw e;
+        }
     }
 
     @PostMapping("/register")
@@ -30,7 +48,10 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse<Void>> logout() {
+    public ResponseEntity<ApiResponse<Void>> logout(HttpServletRequest request) {
+        if (request.getAttribute(AccessToken.REQUEST_ATTRIBUTE) instanceof AccessToken token) {
+            tokenService.revoke(token);
+        }
         return ResponseEntity.ok(ApiResponse.success("Logged out successfully", null));
     }
 
@@ -0,0 +1,28 @@
+package com.rbac.api.controller;
+
+import com.rbac.api.dto.Dtos.*;
+import com.rbac.api.service.AuthorizationService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/authorization")
+@CrossOrigin(origins = "*")
+public class AuthorizationController {
+
+    private static final String USERS_READ = "users.read";
+
+    private final AuthorizationService authorizationService;
+
+    public AuthorizationController(AuthorizationService authorizationService) {
+        this.authorizationService = authorizationService;
+    }
+
+    @PostMapping("/decisions")
+    public ResponseEntity<ApiResponse<AuthorizationDecisions>> decide(@RequestBody AuthorizationRequest body,
+                                                                      HttpServletRequest request) {
+        Permissions.require(request, USERS_READ);
+        return ResponseEntity.ok(ApiResponse.success(authorizationService.decide(body.getChecks())));
+    }
+}
@@ -0,0 +1,55 @@
+package com.rbac.api.controller;
+
+import com.rbac.api.exception.Exceptions.ValidationException;
+import com.rbac.api.service.UserChangeRelay;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+/**
+ * Server-Sent Events feed of user and custom role changes, for services that keep their own copy
+ * of users and roles. Each event id is an offset: a client that reconnects with
+ * {@code Last-Event-ID} (browsers do this on their own) or {@code ?after=} receives everything it
+ * missed, as long as the outbox still holds it; otherwise it gets a {@code reset} event and should
+ * reload its copy from {@code /api/users}.
+ */
+@RestController
+@RequestMapping("/api/changes")
+@CrossOrigin(origins = "*")
+public class ChangeController {
+
+    private static final String USERS_READ = "users.read";
+
+    private final UserChangeRelay relay;
+    private final long streamTimeoutMillis;
+
+    public ChangeController(UserChangeRelay relay,
+                            @Value("${rbac.changes.stream-timeout:PT30M}") Duration streamTimeout) {
+        this.relay = relay;
+        this.streamTimeoutMillis = streamTimeout.toMillis();
+    }
+
+    @GetMapping
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                             @RequestParam(required = false) Long after,
+                             HttpServletRequest request) {
+        Permissions.require(request, USERS_READ);
+        Long offset = after;
+        if (offset == null && lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                offset = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Last-Event-ID must be an offset from this feed");
+            }
+        }
+        if (offset != null && offset < 0) {
+            throw new ValidationException("after must not be negative");
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        relay.subscribe(emitter, offset);
+        return emitter;
+    }
+}
@@ -0,0 +1,63 @@
+package com.rbac.api.controller;
+
+import com.rbac.api.exception.Exceptions.PreconditionFailedException;
+import com.rbac.api.exception.Exceptions.ValidationException;
+
+/**
+ * Strong entity tags derived from the row version. A user's ETag is its {@code @Version}
+ * value in quotes, so conditional requests are answered without hashing the response body.
+ */
+final class ETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {}
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * True when {@code If-None-Match} lists the current tag or {@code *}. Weak comparison is
+     * used, as the header is only evaluated for GET.
+     */
+    static boolean matchesNoneMatch(String ifNoneMatch, long version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String current = of(version);
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith(WEAK_PREFIX)) {
+                candidate = candidate.substring(WEAK_PREFIX.length());
+            }
+            if (candidate.equals(ANY) || candidate.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The version a client expects from {@code If-Match}, or null for an unconditional write.
+     * Weak or malformed tags can never match strongly, so they fail the precondition.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        if (ifMatch.indexOf(',') >= 0) {
+            throw new ValidationException("If-Match must contain a single entity tag");
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new PreconditionFailedException("If-Match " + tag + " does not match the current entity tag");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match " + tag + " does not match the current entity tag");
+        }
+    }
+}
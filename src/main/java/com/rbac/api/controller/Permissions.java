@@ -0,0 +1,25 @@
+package com.rbac.api.controller;
+
+import com.rbac.api.exception.Exceptions.AccessDeniedException;
+import com.rbac.api.exception.Exceptions.AuthenticationException;
+import com.rbac.api.security.AccessToken;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Permission checks against the token verified by {@code TokenAuthenticationFilter}; nothing is
+ * looked up, the permissions travel in the token.
+ */
+final class Permissions {
+
+    private Permissions() {}
+
+    static AccessToken require(HttpServletRequest request, String permission) {
+        if (!(request.getAttribute(AccessToken.REQUEST_ATTRIBUTE) instanceof AccessToken token)) {
+            throw new AuthenticationException("Authentication required");
+        }
+        if (!token.hasPermission(permission)) {
+            throw new AccessDeniedException("Permission " + permission + " is required");
+        }
+        return token;
+    }
+}
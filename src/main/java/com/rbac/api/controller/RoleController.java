@@ -0,0 +1,48 @@
+package com.rbac.api.controller;
+
+import com.rbac.api.dto.Dtos.*;
+import com.rbac.api.service.RoleService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/roles")
+@CrossOrigin(origins = "*")
+public class RoleController {
+
+    private static final String SETTINGS_MANAGE = "settings.manage";
+
+    private final RoleService roleService;
+
+    public RoleController(RoleService roleService) {
+        this.roleService = roleService;
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<RoleResponse>>> getAllRoles() {
+        return ResponseEntity.ok(ApiResponse.success(roleService.getAllRoles()));
+    }
+
+    @GetMapping("/{name}")
+    public ResponseEntity<ApiResponse<RoleResponse>> getRole(@PathVariable String name) {
+        return ResponseEntity.ok(ApiResponse.success(roleService.getRole(name)));
+    }
+
+    @PutMapping("/{name}")
+    public ResponseEntity<ApiResponse<RoleResponse>> defineRole(@PathVariable String name, @RequestBody RoleRequest body,
+                                                                HttpServletRequest request) {
+        Permissions.require(request, SETTINGS_MANAGE);
+        RoleResponse role = roleService.defineRole(name, body);
+        return ResponseEntity.ok(ApiResponse.success("Role saved successfully", role));
+    }
+
+    @DeleteMapping("/{name}")
+    public ResponseEntity<ApiResponse<Void>> deleteRole(@PathVariable String name, HttpServletRequest request) {
+        Permissions.require(request, SETTINGS_MANAGE);
+        roleService.deleteRole(name);
+        return ResponseEntity.ok(ApiResponse.success("Role deleted successfully", null));
+    }
+}
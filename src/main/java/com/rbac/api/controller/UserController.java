@@ -1,36 +1,110 @@
 package com.rbac.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rbac.api.dto.Dtos.*;
 import com.rbac.api.entity.Role;
+import com.rbac.api.exception.Exceptions.ValidationException;
+import com.rbac.api.security.AccessToken;
+import com.rbac.api.service.UserBulkService;
 import com.rbac.api.service.UserService;
+import com.rbac.api.web.ReferenceData;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/users")
 @CrossOrigin(origins = "*")
 public class UserController {
 
+    private static final String VIEW_FULL = "full";
+    private static final String VIEW_COMPACT = "compact";
+    private static final String USERS_CREATE = "users.create";
+    private static final String USERS_UPDATE = "users.update";
+    private static final String USERS_DELETE = "users.delete";
+    private static final String SETTINGS_MANAGE = "settings.manage";
+
     private final UserService userService;
+    private final UserBulkService userBulkService;
+    private final ReferenceData referenceData;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserBulkService userBulkService, ReferenceData referenceData,
+                          ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userBulkService = userBulkService;
+        this.referenceData = referenceData;
+        this.objectMapper = objectMapper;
+    }
+
+    // The unpaged list can be the whole table, so it is streamed page by page
+    @GetMapping(params = { "!cursor", "!limit" })
+    public ResponseEntity<StreamingResponseBody> getAllUsers(@RequestParam(defaultValue = VIEW_FULL) String view) {
+        boolean compact = isCompact(view);
+        return streamResponse(compact, Role.values(), userService::streamAllUsers);
     }
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<UserResponse>>> getAllUsers() {
-        List<UserResponse> users = userService.getAllUsers();
-        return ResponseEntity.ok(ApiResponse.success(users));
+    public ResponseEntity<ApiResponse<?>> getUsersPage(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       @RequestParam(defaultValue = VIEW_FULL) String view) {
+        boolean compact = isCompact(view);
+        UserPage page = userService.getUsersPage(cursor, limit);
+        if (compact) {
+            return ResponseEntity.ok(ApiResponse.success(CompactUserList.of(page.getItems(), page.getNextCursor())));
+        }
+        return ResponseEntity.ok(ApiResponse.success(page));
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        StreamingResponseBody body = out -> userBulkService.exportUsers(out, UserBulkService.Format.NDJSON);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "csv") String format) {
+        UserBulkService.Format exportFormat = UserBulkService.Format.of(format);
+        MediaType mediaType = exportFormat == UserBulkService.Format.CSV
+                ? MediaType.parseMediaType(UserBulkService.TEXT_CSV_VALUE)
+                : MediaType.APPLICATION_NDJSON;
+        StreamingResponseBody body = out -> userBulkService.exportUsers(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + exportFormat.name().toLowerCase(Locale.ROOT) + "\"")
+                .body(body);
+    }
+
+    @PostMapping(value = "/bulk", consumes = { UserBulkService.TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<ApiResponse<BulkImportResult>> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                     InputStream body, HttpServletRequest request) throws IOException {
+        AccessToken token = Permissions.require(request, USERS_CREATE);
+        BulkImportResult result = userBulkService.importUsers(body, UserBulkService.Format.of(contentType),
+                token.hasPermission(SETTINGS_MANAGE));
+        String message = String.format("Imported %d of %d users", result.getCreated(), result.getProcessed());
+        return ResponseEntity.ok(ApiResponse.success(message, result));
+    }
+
+    // Served from the user cache, so a matching If-None-Match costs no query and no serialization
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<UserResponse>> getUserById(@PathVariable UUID id) {
+    public ResponseEntity<ApiResponse<UserResponse>> getUserById(@PathVariable UUID id,
+                                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         UserResponse user = userService.getUserById(id);
-        return ResponseEntity.ok(ApiResponse.success(user));
+        if (ETags.matchesNoneMatch(ifNoneMatch, user.getVersion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(user.getVersion())).build();
+        }
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(ApiResponse.success(user));
     }
 
     @GetMapping("/username/{username}")
@@ -40,43 +114,111 @@ public class UserController {
     }
 
     @PostMapping
-    public ResponseEntity<ApiResponse<UserResponse>> createUser(@RequestBody CreateUserRequest request) {
-        UserResponse user = userService.createUser(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success("User created successfully", user));
+    public ResponseEntity<ApiResponse<UserResponse>> createUser(@RequestBody CreateUserRequest body, HttpServletRequest request) {
+        Permissions.require(request, USERS_CREATE);
+        // Creating a user with a role is assigning that role
+        if (body.getRole() != null && body.getRole() != Role.VIEWER) {
+            Permissions.require(request, SETTINGS_MANAGE);
+        }
+        UserResponse user = userService.createUser(body);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(user.getVersion()))
+                .body(ApiResponse.success("User created successfully", user));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<ApiResponse<UserResponse>> updateUser(@PathVariable UUID id, @RequestBody UpdateUserRequest request) {
-        UserResponse user = userService.updateUser(id, request);
-        return ResponseEntity.ok(ApiResponse.success("User updated successfully", user));
+    public ResponseEntity<ApiResponse<UserResponse>> updateUser(@PathVariable UUID id, @RequestBody UpdateUserRequest body,
+                                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                HttpServletRequest request) {
+        Permissions.require(request, USERS_UPDATE);
+        UserResponse user = userService.updateUser(id, body, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(ApiResponse.success("User updated successfully", user));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<ApiResponse<Void>> deleteUser(@PathVariable UUID id) {
+    public ResponseEntity<ApiResponse<Void>> deleteUser(@PathVariable UUID id, HttpServletRequest request) {
+        Permissions.require(request, USERS_DELETE);
         userService.deleteUser(id);
         return ResponseEntity.ok(ApiResponse.success("User deleted successfully", null));
     }
 
     @PutMapping("/{id}/role")
-    public ResponseEntity<ApiResponse<UserResponse>> changeUserRole(@PathVariable UUID id, @RequestBody ChangeRoleRequest request) {
-        UserResponse user = userService.changeUserRole(id, request.getRole());
-        return ResponseEntity.ok(ApiResponse.success("Role updated successfully", user));
+    public ResponseEntity<ApiResponse<UserResponse>> changeUserRole(@PathVariable UUID id, @RequestBody ChangeRoleRequest body,
+                                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                    HttpServletRequest request) {
+        Permissions.require(request, SETTINGS_MANAGE);
+        UserResponse user = userService.changeUserRole(id, body.getRole(), ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(ApiResponse.success("Role updated successfully", user));
+    }
+
+    @PutMapping("/{id}/custom-role")
+    public ResponseEntity<ApiResponse<UserResponse>> assignCustomRole(@PathVariable UUID id, @RequestBody CustomRoleAssignment assignment,
+                                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                      HttpServletRequest request) {
+        Permissions.require(request, SETTINGS_MANAGE);
+        if (assignment.getRole() == null || assignment.getRole().isBlank()) {
+            throw new ValidationException("role is required");
+        }
+        UserResponse user = userService.assignCustomRole(id, assignment.getRole(), ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(ApiResponse.success("Custom role assigned successfully", user));
+    }
+
+    @DeleteMapping("/{id}/custom-role")
+    public ResponseEntity<ApiResponse<UserResponse>> removeCustomRole(@PathVariable UUID id,
+                                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                      HttpServletRequest request) {
+        Permissions.require(request, SETTINGS_MANAGE);
+        UserResponse user = userService.assignCustomRole(id, null, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(ApiResponse.success("Custom role removed successfully", user));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<UserResponse>>> searchUsers(@RequestParam String q) {
-        List<UserResponse> users = userService.searchUsers(q);
-        return ResponseEntity.ok(ApiResponse.success(users));
+    public ResponseEntity<ApiResponse<?>> searchUsers(@RequestParam String q,
+                                                      @RequestParam(required = false) Integer limit,
+                                                      @RequestParam(defaultValue = VIEW_FULL) String view) {
+        boolean compact = isCompact(view);
+        return listResponse(userService.searchUsers(q, limit), compact);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<UserStatsResponse>> getUserStats() {
+        return ResponseEntity.ok(ApiResponse.success(userService.getUserStats()));
     }
 
     @GetMapping("/role/{role}")
-    public ResponseEntity<ApiResponse<List<UserResponse>>> getUsersByRole(@PathVariable Role role) {
-        List<UserResponse> users = userService.getUsersByRole(role);
-        return ResponseEntity.ok(ApiResponse.success(users));
+    public ResponseEntity<StreamingResponseBody> getUsersByRole(@PathVariable Role role,
+                                                                @RequestParam(defaultValue = VIEW_FULL) String view) {
+        boolean compact = isCompact(view);
+        return streamResponse(compact, new Role[] { role }, sink -> userService.streamUsersByRole(role, sink));
     }
 
     @GetMapping("/roles")
-    public ResponseEntity<ApiResponse<Role[]>> getAllRoles() {
-        return ResponseEntity.ok(ApiResponse.success(Role.values()));
+    public ResponseEntity<byte[]> getAllRoles(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return referenceData.roles().respond(ifNoneMatch, acceptEncoding);
+    }
+
+    private static boolean isCompact(String view) {
+        if (VIEW_COMPACT.equalsIgnoreCase(view)) {
+            return true;
+        }
+        if (VIEW_FULL.equalsIgnoreCase(view)) {
+            return false;
+        }
+        throw new ValidationException("view must be '" + VIEW_FULL + "' or '" + VIEW_COMPACT + "'");
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamResponse(boolean compact, Role[] roles,
+                                                                 Consumer<Consumer<UserResponse>> source) {
+        StreamingResponseBody body = compact
+                ? UserListStream.compact(objectMapper, roles, source)
+                : UserListStream.full(objectMapper, source);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static ResponseEntity<ApiResponse<?>> listResponse(List<UserResponse> users, boolean compact) {
+        if (compact) {
+            return ResponseEntity.ok(ApiResponse.success(CompactUserList.of(users, null)));
+        }
+        return ResponseEntity.ok(ApiResponse.success(users));
     }
 }
@@ -0,0 +1,92 @@
+package com.rbac.api.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rbac.api.dto.Dtos.UserResponse;
+import com.rbac.api.dto.PermissionsSerializer;
+import com.rbac.api.entity.Role;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes {@code ApiResponse.success(users)}, or its compact form, one user at a time through a
+ * single {@link JsonGenerator} on the response stream. The JSON matches the buffered response,
+ * but neither the list nor the serialized body is ever held in memory, and the first bytes leave
+ * as soon as the first rows are read.
+ * <p>
+ * The compact view writes its {@code roles} map before any user is seen, so it lists the roles
+ * passed in rather than only the roles that occur. Users with a custom role keep their own
+ * permission list, since the map only covers built-in roles.
+ */
+final class UserListStream implements StreamingResponseBody {
+
+    private static final PermissionsSerializer PERMISSIONS = new PermissionsSerializer();
+
+    private final ObjectMapper objectMapper;
+    private final Role[] compactRoles;
+    private final Consumer<Consumer<UserResponse>> source;
+
+    private UserListStream(ObjectMapper objectMapper, Role[] compactRoles, Consumer<Consumer<UserResponse>> source) {
+        this.objectMapper = objectMapper;
+        this.compactRoles = compactRoles;
+        this.source = source;
+    }
+
+    static UserListStream full(ObjectMapper objectMapper, Consumer<Consumer<UserResponse>> source) {
+        return new UserListStream(objectMapper, null, source);
+    }
+
+    static UserListStream compact(ObjectMapper objectMapper, Role[] roles, Consumer<Consumer<UserResponse>> source) {
+        return new UserListStream(objectMapper, roles, source);
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        // Flushing after every user would send one chunk per row; the container flushes as its buffer fills
+        ObjectWriter writer = objectMapper.writerFor(UserResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        boolean compact = compactRoles != null;
+        // A failure part way must leave the body unterminated: closing the generator may neither
+        // finish the open array and object nor close the response, or the client sees a short list
+        // as a complete one
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartObject();
+            generator.writeBooleanField("success", true);
+            generator.writeNullField("message");
+            generator.writeFieldName("data");
+            if (compact) {
+                generator.writeStartObject();
+                generator.writeObjectFieldStart("roles");
+                for (Role role : compactRoles) {
+                    generator.writeFieldName(role.name());
+                    PERMISSIONS.serialize(role.getPermissions(), generator, null);
+                }
+                generator.writeEndObject();
+                generator.writeFieldName("users");
+            }
+            generator.writeStartArray();
+            source.accept(user -> {
+                if (compact && user.getCustomRole() == null) {
+                    user.setPermissions(null);
+                }
+                try {
+                    writer.writeValue(generator, user);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            if (compact) {
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+    }
+}
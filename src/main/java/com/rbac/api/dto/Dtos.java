@@ -1,8 +1,14 @@
 package com.rbac.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.rbac.api.entity.Role;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class Dtos {
@@ -32,6 +38,9 @@ public class Dtos {
         private String email;
         private Role role;
         private List<String> permissions;
+        private String accessToken;
+        private String tokenType;
+        private long expiresIn;
         private String message;
 
         public LoginResponse() {}
@@ -46,8 +55,15 @@ public class Dtos {
         public void setEmail(String email) { this.email = email; }
         public Role getRole() { return role; }
         public void setRole(Role role) { this.role = role; }
+        @JsonSerialize(using = PermissionsSerializer.class)
         public List<String> getPermissions() { return permissions; }
         public void setPermissions(List<String> permissions) { this.permissions = permissions; }
+        public String getAccessToken() { return accessToken; }
+        public void setAccessToken(String accessToken) { this.accessToken = accessToken; }
+        public String getTokenType() { return tokenType; }
+        public void setTokenType(String tokenType) { this.tokenType = tokenType; }
+        public long getExpiresIn() { return expiresIn; }
+        public void setExpiresIn(long expiresIn) { this.expiresIn = expiresIn; }
         public String getMessage() { return message; }
         public void setMessage(String message) { this.message = message; }
     }
@@ -80,10 +96,12 @@ public class Dtos {
         private String name;
         private String email;
         private Role role;
+        private String customRole;
         private List<String> permissions;
         private boolean isActive;
         private LocalDateTime createdAt;
         private LocalDateTime lastLogin;
+        private long version;
 
         public UserResponse() {}
 
@@ -97,6 +115,12 @@ public class Dtos {
         public void setEmail(String email) { this.email = email; }
         public Role getRole() { return role; }
         public void setRole(Role role) { this.role = role; }
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getCustomRole() { return customRole; }
+        public void setCustomRole(String customRole) { this.customRole = customRole; }
+        // Left out in the compact view, where the permissions sit once per role in CompactUserList
+        @JsonSerialize(using = PermissionsSerializer.class)
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         public List<String> getPermissions() { return permissions; }
         public void setPermissions(List<String> permissions) { this.permissions = permissions; }
         public boolean isActive() { return isActive; }
@@ -105,6 +129,101 @@ public class Dtos {
         public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
         public LocalDateTime getLastLogin() { return lastLogin; }
         public void setLastLogin(LocalDateTime lastLogin) { this.lastLogin = lastLogin; }
+        // Sent as the ETag header rather than in the body
+        @JsonIgnore
+        public long getVersion() { return version; }
+        public void setVersion(long version) { this.version = version; }
+    }
+
+    public static class UserPage {
+        private List<UserResponse> items;
+        private String nextCursor;
+
+        public UserPage() {}
+
+        public UserPage(List<UserResponse> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<UserResponse> getItems() { return items; }
+        public void setItems(List<UserResponse> items) { this.items = items; }
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    }
+
+    /**
+     * Compact list envelope: each role's permissions appear once in {@code roles}, and users carry only their role key.
+     */
+    public static class CompactUserList {
+        private Map<Role, List<String>> roles;
+        private List<UserResponse> users;
+        private String nextCursor;
+
+        public CompactUserList() {}
+
+        public CompactUserList(Map<Role, List<String>> roles, List<UserResponse> users, String nextCursor) {
+            this.roles = roles;
+            this.users = users;
+            this.nextCursor = nextCursor;
+        }
+
+        public static CompactUserList of(List<UserResponse> users, String nextCursor) {
+            Map<Role, List<String>> roles = new EnumMap<>(Role.class);
+            for (UserResponse user : users) {
+                // Custom role grants are per user, so those users keep their own list
+                if (user.getCustomRole() == null) {
+                    roles.putIfAbsent(user.getRole(), user.getPermissions());
+                    user.setPermissions(null);
+                }
+            }
+            return new CompactUserList(roles, users, nextCursor);
+        }
+
+        @JsonSerialize(contentUsing = PermissionsSerializer.class)
+        public Map<Role, List<String>> getRoles() { return roles; }
+        public void setRoles(Map<Role, List<String>> roles) { this.roles = roles; }
+        public List<UserResponse> getUsers() { return users; }
+        public void setUsers(List<UserResponse> users) { this.users = users; }
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    }
+
+    // ==================== User Stats ====================
+
+    public static class UserStatsResponse {
+        private long total;
+        private long active;
+        private long inactive;
+        private Map<Role, Long> byRole;
+        private Map<String, Long> byLastLogin;
+        private LocalDateTime generatedAt;
+
+        public UserStatsResponse() {}
+
+        public UserStatsResponse(long total, long active, long inactive, Map<Role, Long> byRole,
+                                 Map<String, Long> byLastLogin, LocalDateTime generatedAt) {
+            this.total = total;
+            this.active = active;
+            this.inactive = inactive;
+            this.byRole = byRole;
+            this.byLastLogin = byLastLogin;
+            this.generatedAt = generatedAt;
+        }
+
+        public long getTotal() { return total; }
+        public void setTotal(long total) { this.total = total; }
+        public long getActive() { return active; }
+        public void setActive(long active) { this.active = active; }
+        public long getInactive() { return inactive; }
+        public void setInactive(long inactive) { this.inactive = inactive; }
+        public Map<Role, Long> getByRole() { return byRole; }
+        public void setByRole(Map<Role, Long> byRole) { this.byRole = byRole; }
+        public Map<String, Long> getByLastLogin() { return byLastLogin; }
+        public void setByLastLogin(Map<String, Long> byLastLogin) { this.byLastLogin = byLastLogin; }
+        public LocalDateTime getGeneratedAt() { return generatedAt; }
+        public void setGeneratedAt(LocalDateTime generatedAt) { this.generatedAt = generatedAt; }
     }
 
     // ==================== Create User ====================
@@ -130,6 +249,54 @@ public class Dtos {
         public void setRole(Role role) { this.role = role; }
     }
 
+    // ==================== Bulk Import ====================
+
+    public static class BulkImportResult {
+        private int processed;
+        private int created;
+        private int failed;
+        private List<BulkRowError> errors;
+
+        public BulkImportResult() {}
+
+        public BulkImportResult(int processed, int created, int failed, List<BulkRowError> errors) {
+            this.processed = processed;
+            this.created = created;
+            this.failed = failed;
+            this.errors = errors;
+        }
+
+        public int getProcessed() { return processed; }
+        public void setProcessed(int processed) { this.processed = processed; }
+        public int getCreated() { return created; }
+        public void setCreated(int created) { this.created = created; }
+        public int getFailed() { return failed; }
+        public void setFailed(int failed) { this.failed = failed; }
+        public List<BulkRowError> getErrors() { return errors; }
+        public void setErrors(List<BulkRowError> errors) { this.errors = errors; }
+    }
+
+    public static class BulkRowError {
+        private long line;
+        private String username;
+        private String message;
+
+        public BulkRowError() {}
+
+        public BulkRowError(long line, String username, String message) {
+            this.line = line;
+            this.username = username;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public void setLine(long line) { this.line = line; }
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+
     // ==================== Update User ====================
 
     public static class UpdateUserRequest {
@@ -161,6 +328,262 @@ public class Dtos {
         public void setRole(Role role) { this.role = role; }
     }
 
+    public static class CustomRoleAssignment {
+        private String role;
+
+        public CustomRoleAssignment() {}
+
+        public String getRole() { return role; }
+        public void setRole(String role) { this.role = role; }
+    }
+
+    // ==================== Roles ====================
+
+    public static class RoleRequest {
+        private Integer level;
+        private String description;
+        private List<String> parents;
+        private List<String> permissions;
+
+        public RoleRequest() {}
+
+        public Integer getLevel() { return level; }
+        public void setLevel(Integer level) { this.level = level; }
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+        public List<String> getParents() { return parents; }
+        public void setParents(List<String> parents) { this.parents = parents; }
+        public List<String> getPermissions() { return permissions; }
+        public void setPermissions(List<String> permissions) { this.permissions = permissions; }
+    }
+
+    /**
+     * A role with its effective permissions; {@code grants} are the ones it adds to its parents.
+     */
+    public static class RoleResponse {
+        private String name;
+        private int level;
+        private boolean builtIn;
+        private String description;
+        private List<String> parents;
+        private List<String> grants;
+        private List<String> permissions;
+
+        public RoleResponse() {}
+
+        public RoleResponse(String name, int level, boolean builtIn, String description,
+                            List<String> parents, List<String> grants, List<String> permissions) {
+            this.name = name;
+            this.level = level;
+            this.builtIn = builtIn;
+            this.description = description;
+            this.parents = parents;
+            this.grants = grants;
+            this.permissions = permissions;
+        }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getLevel() { return level; }
+        public void setLevel(int level) { this.level = level; }
+        public boolean isBuiltIn() { return builtIn; }
+        public void setBuiltIn(boolean builtIn) { this.builtIn = builtIn; }
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+        public List<String> getParents() { return parents; }
+        public void setParents(List<String> parents) { this.parents = parents; }
+        public List<String> getGrants() { return grants; }
+        public void setGrants(List<String> grants) { this.grants = grants; }
+        public List<String> getPermissions() { return permissions; }
+        public void setPermissions(List<String> permissions) { this.permissions = permissions; }
+    }
+
+    // ==================== Audit ====================
+
+    public static class AuditEventResponse {
+        private long id;
+        private Instant occurredAt;
+        private String action;
+        private UUID actorId;
+        private UUID subjectId;
+        private String subjectName;
+        private String client;
+        private String detail;
+
+        public AuditEventResponse() {}
+
+        public AuditEventResponse(long id, Instant occurredAt, String action, UUID actorId, UUID subjectId,
+                                  String subjectName, String client, String detail) {
+            this.id = id;
+            this.occurredAt = occurredAt;
+            this.action = action;
+            this.actorId = actorId;
+            this.subjectId = subjectId;
+            this.subjectName = subjectName;
+            this.client = client;
+            this.detail = detail;
+        }
+
+        public long getId() { return id; }
+        public void setId(long id) { this.id = id; }
+        public Instant getOccurredAt() { return occurredAt; }
+        public void setOccurredAt(Instant occurredAt) { this.occurredAt = occurredAt; }
+        public String getAction() { return action; }
+        public void setAction(String action) { this.action = action; }
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public UUID getActorId() { return actorId; }
+        public void setActorId(UUID actorId) { this.actorId = actorId; }
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public UUID getSubjectId() { return subjectId; }
+        public void setSubjectId(UUID subjectId) { this.subjectId = subjectId; }
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getSubjectName() { return subjectName; }
+        public void setSubjectName(String subjectName) { this.subjectName = subjectName; }
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getClient() { return client; }
+        public void setClient(String client) { this.client = client; }
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getDetail() { return detail; }
+        public void setDetail(String detail) { this.detail = detail; }
+    }
+
+    public static class AuditPage {
+        private List<AuditEventResponse> items;
+        private String nextCursor;
+
+        public AuditPage() {}
+
+        public AuditPage(List<AuditEventResponse> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<AuditEventResponse> getItems() { return items; }
+        public void setItems(List<AuditEventResponse> items) { this.items = items; }
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    }
+
+    // ==================== Change Feed ====================
+
+    /**
+     * One entry of the change feed. User events carry the user's state after the change; role
+     * events only name the custom role, whose definition is read from {@code /api/roles}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class UserChangeEvent {
+        private long id;
+        private Instant occurredAt;
+        private String type;
+        private UUID userId;
+        private String username;
+        private String role;
+        private Boolean active;
+        private Long version;
+
+        public UserChangeEvent() {}
+
+        public UserChangeEvent(long id, Instant occurredAt, String type, UUID userId, String username,
+                               String role, Boolean active, Long version) {
+            this.id = id;
+            this.occurredAt = occurredAt;
+            this.type = type;
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+            this.active = active;
+            this.version = version;
+        }
+
+        public long getId() { return id; }
+        public void setId(long id) { this.id = id; }
+        public Instant getOccurredAt() { return occurredAt; }
+        public void setOccurredAt(Instant occurredAt) { this.occurredAt = occurredAt; }
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public UUID getUserId() { return userId; }
+        public void setUserId(UUID userId) { this.userId = userId; }
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+        public String getRole() { return role; }
+        public void setRole(String role) { this.role = role; }
+        public Boolean getActive() { return active; }
+        public void setActive(Boolean active) { this.active = active; }
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+    }
+
+    // ==================== Authorization Decisions ====================
+
+    public static class AuthorizationRequest {
+        private List<AuthorizationCheck> checks;
+
+        public AuthorizationRequest() {}
+
+        public AuthorizationRequest(List<AuthorizationCheck> checks) {
+            this.checks = checks;
+        }
+
+        public List<AuthorizationCheck> getChecks() { return checks; }
+        public void setChecks(List<AuthorizationCheck> checks) { this.checks = checks; }
+    }
+
+    public static class AuthorizationCheck {
+        private UUID userId;
+        private String permission;
+
+        public AuthorizationCheck() {}
+
+        public AuthorizationCheck(UUID userId, String permission) {
+            this.userId = userId;
+            this.permission = permission;
+        }
+
+        public UUID getUserId() { return userId; }
+        public void setUserId(UUID userId) { this.userId = userId; }
+        public String getPermission() { return permission; }
+        public void setPermission(String permission) { this.permission = permission; }
+    }
+
+    /**
+     * One bit per check, in request order: check {@code i} is allowed when bit {@code i % 8}
+     * (least significant first) of byte {@code i / 8} of the base64-decoded {@code decisions}
+     * is set. Users and permission names that do not exist are listed so callers can tell a
+     * typo from a denial.
+     */
+    public static class AuthorizationDecisions {
+        private int count;
+        private int allowed;
+        private String decisions;
+        private List<UUID> unknownUsers;
+        private List<String> unknownPermissions;
+
+        public AuthorizationDecisions() {}
+
+        public AuthorizationDecisions(int count, int allowed, String decisions, List<UUID> unknownUsers,
+                                      List<String> unknownPermissions) {
+            this.count = count;
+            this.allowed = allowed;
+            this.decisions = decisions;
+            this.unknownUsers = unknownUsers;
+            this.unknownPermissions = unknownPermissions;
+        }
+
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+        public int getAllowed() { return allowed; }
+        public void setAllowed(int allowed) { this.allowed = allowed; }
+        public String getDecisions() { return decisions; }
+        public void setDecisions(String decisions) { this.decisions = decisions; }
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        public List<UUID> getUnknownUsers() { return unknownUsers; }
+        public void setUnknownUsers(List<UUID> unknownUsers) { this.unknownUsers = unknownUsers; }
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        public List<String> getUnknownPermissions() { return unknownPermissions; }
+        public void setUnknownPermissions(List<String> unknownPermissions) { this.unknownPermissions = unknownPermissions; }
+    }
+
     // ==================== API Response Wrapper ====================
 
     public static class ApiResponse<T> {
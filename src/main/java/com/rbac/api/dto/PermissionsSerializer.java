@@ -0,0 +1,63 @@
+package com.rbac.api.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.rbac.api.entity.Role;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a role's permission list as a JSON array that was encoded once at startup.
+ * DTOs hold the role's own list instance, so an identity check finds the cached bytes.
+ * Any other list is written element by element.
+ */
+public class PermissionsSerializer extends StdSerializer<List<String>> {
+
+    private static final Role[] ROLES = Role.values();
+    private static final SerializableString[] BLOCKS = new SerializableString[ROLES.length];
+
+    static {
+        for (Role role : ROLES) {
+            BLOCKS[role.ordinal()] = new SerializedString(toJsonArray(role.getPermissions()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public PermissionsSerializer() {
+        super((Class<List<String>>) (Class<?>) List.class);
+    }
+
+    @Override
+    public void serialize(List<String> permissions, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        for (Role role : ROLES) {
+            if (role.getPermissions() == permissions) {
+                gen.writeRawValue(BLOCKS[role.ordinal()]);
+                return;
+            }
+        }
+        gen.writeStartArray(permissions, permissions.size());
+        for (String permission : permissions) {
+            gen.writeString(permission);
+        }
+        gen.writeEndArray();
+    }
+
+    private static String toJsonArray(List<String> permissions) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < permissions.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"');
+            encoder.quoteAsString(permissions.get(i), json);
+            json.append('"');
+        }
+        return json.append(']').toString();
+    }
+}
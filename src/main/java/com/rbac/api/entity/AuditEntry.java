@@ -0,0 +1,58 @@
+package com.rbac.api.entity;
+
+import com.rbac.api.audit.AuditAction;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read side of the audit trail. Rows are only ever inserted, in batches, by {@code AuditLog};
+ * on PostgreSQL the table is partitioned by month on {@code occurred_at}.
+ */
+@Entity
+@Immutable
+@Table(name = "audit_events", indexes = {
+        @Index(name = "idx_audit_events_occurred_at_id", columnList = "occurred_at, id"),
+        @Index(name = "idx_audit_events_subject", columnList = "subject_id, occurred_at")
+})
+public class AuditEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private AuditAction action;
+
+    @Column(name = "actor_id")
+    private UUID actorId;
+
+    @Column(name = "subject_id")
+    private UUID subjectId;
+
+    @Column(name = "subject_name", length = 100)
+    private String subjectName;
+
+    @Column(length = 64)
+    private String client;
+
+    @Column(length = 500)
+    private String detail;
+
+    protected AuditEntry() {}
+
+    public Long getId() { return id; }
+    public Instant getOccurredAt() { return occurredAt; }
+    public AuditAction getAction() { return action; }
+    public UUID getActorId() { return actorId; }
+    public UUID getSubjectId() { return subjectId; }
+    public String getSubjectName() { return subjectName; }
+    public String getClient() { return client; }
+    public String getDetail() { return detail; }
+}
@@ -0,0 +1,81 @@
+package com.rbac.api.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A role defined at runtime rather than in {@link Role}. Parents name built-in roles or other
+ * custom roles; the effective permissions are resolved by {@code RoleHierarchy}.
+ */
+@Entity
+@Table(name = "custom_roles")
+public class CustomRole {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(nullable = false)
+    private int level;
+
+    private String description;
+
+    @ElementCollection
+    @CollectionTable(name = "custom_role_parents", joinColumns = @JoinColumn(name = "role"))
+    @Column(name = "parent", nullable = false, length = 50)
+    private Set<String> parents = new LinkedHashSet<>();
+
+    @ElementCollection
+    @CollectionTable(name = "custom_role_grants", joinColumns = @JoinColumn(name = "role"))
+    @Column(name = "permission", nullable = false, length = 100)
+    private Set<String> grants = new LinkedHashSet<>();
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    public CustomRole() {}
+
+    public CustomRole(String name) {
+        this.name = name;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public String getName() { return name; }
+
+    public int getLevel() { return level; }
+    public void setLevel(int level) { this.level = level; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public Set<String> getParents() { return parents; }
+    public void setParents(Set<String> parents) { this.parents = parents; }
+
+    public Set<String> getGrants() { return grants; }
+    public void setGrants(Set<String> grants) { this.grants = grants; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public long getVersion() { return version; }
+}
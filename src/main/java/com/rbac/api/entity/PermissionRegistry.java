@@ -0,0 +1,53 @@
+package com.rbac.api.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns every permission string a dense integer id. Ids are handed out in
+ * registration order when {@link Role} is initialized and never change for the
+ * lifetime of the JVM.
+ */
+public final class PermissionRegistry {
+
+    public static final int UNKNOWN = -1;
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final List<String> NAMES = new ArrayList<>();
+
+    private PermissionRegistry() {}
+
+    public static synchronized int register(String permission) {
+        Integer existing = IDS.get(permission);
+        if (existing != null) {
+            return existing;
+        }
+        int id = NAMES.size();
+        NAMES.add(permission);
+        IDS.put(permission, id);
+        return id;
+    }
+
+    public static int idOf(String permission) {
+        if (permission == null) {
+            return UNKNOWN;
+        }
+        Integer id = IDS.get(permission);
+        return id != null ? id : UNKNOWN;
+    }
+
+    public static synchronized String nameOf(int id) {
+        return NAMES.get(id);
+    }
+
+    public static synchronized int size() {
+        return NAMES.size();
+    }
+
+    public static synchronized List<String> names() {
+        return Collections.unmodifiableList(new ArrayList<>(NAMES));
+    }
+}
@@ -0,0 +1,139 @@
+package com.rbac.api.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable bitset of permission ids from {@link PermissionRegistry}.
+ */
+public final class PermissionSet {
+
+    public static final PermissionSet EMPTY = new PermissionSet(new long[0]);
+
+    private final long[] words;
+
+    private PermissionSet(long[] words) {
+        this.words = words;
+    }
+
+    public static PermissionSet of(Collection<String> permissions) {
+        long[] words = new long[0];
+        for (String permission : permissions) {
+            int id = PermissionRegistry.register(permission);
+            int word = id >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, word + 1);
+            }
+            words[word] |= 1L << id;
+        }
+        return new PermissionSet(words);
+    }
+
+    public static PermissionSet of(String... permissions) {
+        return of(Arrays.asList(permissions));
+    }
+
+    public static PermissionSet fromWords(long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0L) {
+            length--;
+        }
+        return length == 0 ? EMPTY : new PermissionSet(Arrays.copyOf(words, length));
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int word = id >>> 6;
+        return word < words.length && (words[word] & (1L << id)) != 0L;
+    }
+
+    public boolean contains(String permission) {
+        return contains(PermissionRegistry.idOf(permission));
+    }
+
+    public boolean containsAll(PermissionSet other) {
+        long[] required = other.words;
+        if (required.length > words.length) {
+            for (int i = words.length; i < required.length; i++) {
+                if (required[i] != 0L) {
+                    return false;
+                }
+            }
+        }
+        int shared = Math.min(words.length, required.length);
+        for (int i = 0; i < shared; i++) {
+            if ((words[i] & required[i]) != required[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean intersects(PermissionSet other) {
+        long[] candidates = other.words;
+        int shared = Math.min(words.length, candidates.length);
+        for (int i = 0; i < shared; i++) {
+            if ((words[i] & candidates[i]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public PermissionSet union(PermissionSet other) {
+        long[] merged = Arrays.copyOf(words, Math.max(words.length, other.words.length));
+        for (int i = 0; i < other.words.length; i++) {
+            merged[i] |= other.words[i];
+        }
+        return new PermissionSet(merged);
+    }
+
+    /**
+     * The permission names in id order, which is catalog order for the built-in permissions.
+     */
+    public List<String> names() {
+        List<String> names = new ArrayList<>(size());
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0L) {
+                names.add(PermissionRegistry.nameOf((word << 6) + Long.numberOfTrailingZeros(bits)));
+                bits &= bits - 1;
+            }
+        }
+        return List.copyOf(names);
+    }
+
+    public int size() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public int wordCount() {
+        return words.length;
+    }
+
+    public long word(int index) {
+        return index < words.length ? words[index] : 0L;
+    }
+
+    public long[] toWords() {
+        return words.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof PermissionSet other && Arrays.equals(words, other.words));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+}
@@ -1,62 +1,175 @@
 package com.rbac.api.entity;
 
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Built-in roles. Each role lists only the permissions it adds on top of the roles it inherits
+ * from; the effective permissions are the transitive closure, resolved once when the enum is
+ * initialized. Roles defined at runtime are handled by {@code RoleHierarchy}.
+ */
 public enum Role {
-    
-    ADMINISTRATOR(5, Arrays.asList(
-        "users.create", "users.read", "users.update", "users.delete",
-        "transfers.create", "transfers.read", "transfers.update", "transfers.delete", "transfers.approve",
-        "inventory.read", "inventory.update",
-        "reports.view", "reports.export",
-        "audit.view",
+
+    ADMINISTRATOR(5,
+        "users.create", "users.update", "users.delete",
+        "transfers.delete",
         "settings.manage"
-    )),
-    
-    MANAGER(4, Arrays.asList(
-        "users.read",
-        "transfers.create", "transfers.read", "transfers.update", "transfers.approve",
-        "inventory.read", "inventory.update",
-        "reports.view", "reports.export",
-        "audit.view"
-    )),
-    
-    WAREHOUSE_CLERK(3, Arrays.asList(
+    ),
+
+    MANAGER(4,
+        "transfers.update", "transfers.approve",
+        "inventory.update",
+        "reports.export"
+    ),
+
+    WAREHOUSE_CLERK(3,
         "transfers.create", "transfers.read",
-        "inventory.read",
         "reports.view"
-    )),
-    
-    AUDITOR(2, Arrays.asList(
+    ),
+
+    AUDITOR(2,
         "users.read",
         "transfers.read",
-        "inventory.read",
         "reports.view",
         "audit.view"
-    )),
-    
-    VIEWER(1, Arrays.asList(
+    ),
+
+    VIEWER(1,
         "inventory.read"
-    ));
+    );
+
+    /**
+     * Every known permission, in the order permission lists are reported. Registering them first
+     * and in this order gives every node the same permission ids, so tokens verify anywhere.
+     */
+    private static final List<String> CATALOG = List.of(
+        "users.create", "users.read", "users.update", "users.delete",
+        "transfers.create", "transfers.read", "transfers.update", "transfers.delete", "transfers.approve",
+        "inventory.read", "inventory.update",
+        "reports.view", "reports.export",
+        "audit.view",
+        "settings.manage"
+    );
+
+    static {
+        CATALOG.forEach(PermissionRegistry::register);
+
+        ADMINISTRATOR.inherits(MANAGER);
+        MANAGER.inherits(WAREHOUSE_CLERK, AUDITOR);
+        WAREHOUSE_CLERK.inherits(VIEWER);
+        AUDITOR.inherits(VIEWER);
+
+        for (Role role : values()) {
+            if (role.permissionSet == null) {
+                role.resolve();
+            }
+        }
+    }
 
     private final int level;
-    private final List<String> permissions;
+    private final List<String> grants;
+    // Written once by the static initializer above; class initialization publishes them safely
+    private Set<Role> parents = Set.of();
+    private long ancestors;
+    private List<String> permissions;
+    private PermissionSet permissionSet;
 
-    Role(int level, List<String> permissions) {
+    Role(int level, String... grants) {
         this.level = level;
-        this.permissions = permissions;
+        this.grants = List.of(grants);
+    }
+
+    private void inherits(Role first, Role... rest) {
+        Set<Role> roles = EnumSet.of(first, rest);
+        for (Role parent : roles) {
+            if (parent.level >= level) {
+                throw new IllegalStateException(name() + " cannot inherit from " + parent + " at the same or a higher level");
+            }
+        }
+        parents = Collections.unmodifiableSet(roles);
+    }
+
+    private void resolve() {
+        for (String grant : grants) {
+            if (!CATALOG.contains(grant)) {
+                throw new IllegalStateException(name() + " grants " + grant + ", which is missing from the catalog");
+            }
+        }
+        PermissionSet granted = PermissionSet.of(grants);
+        for (Role parent : parents) {
+            // Levels strictly decrease along inheritance, so this recursion ends
+            if (parent.permissionSet == null) {
+                parent.resolve();
+            }
+            granted = granted.union(parent.permissionSet);
+            ancestors |= parent.ancestors | (1L << parent.ordinal());
+        }
+        permissionSet = granted;
+        permissions = granted.names();
+    }
+
+    /**
+     * Every permission the built-in roles can grant, in catalog order.
+     */
+    public static List<String> catalog() {
+        return CATALOG;
     }
 
     public int getLevel() {
         return level;
     }
 
+    /**
+     * The roles this role inherits from directly.
+     */
+    public Set<Role> getParents() {
+        return parents;
+    }
+
+    /**
+     * The permissions granted by this role itself, without the inherited ones.
+     */
+    public List<String> getGrants() {
+        return grants;
+    }
+
     public List<String> getPermissions() {
         return permissions;
     }
 
+    public PermissionSet getPermissionSet() {
+        return permissionSet;
+    }
+
+    /**
+     * Whether this role ranks at or above {@code other}, e.g. {@code role.isAtLeast(MANAGER)}.
+     */
+    public boolean isAtLeast(Role other) {
+        return level >= other.level;
+    }
+
+    /**
+     * Whether this role is {@code other} or inherits from it, directly or transitively.
+     */
+    public boolean includes(Role other) {
+        return this == other || (ancestors & (1L << other.ordinal())) != 0L;
+    }
+
     public boolean hasPermission(String permission) {
-        return permissions.contains(permission);
+        return permissionSet.contains(PermissionRegistry.idOf(permission));
+    }
+
+    public boolean hasPermission(int permissionId) {
+        return permissionSet.contains(permissionId);
+    }
+
+    public boolean hasAllPermissions(PermissionSet required) {
+        return permissionSet.containsAll(required);
+    }
+
+    public boolean hasAnyPermission(PermissionSet candidates) {
+        return permissionSet.intersects(candidates);
     }
 }
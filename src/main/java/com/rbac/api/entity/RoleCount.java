@@ -0,0 +1,32 @@
+package com.rbac.api.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Number of users holding a role that must never lose its last member. Only
+ * {@link Role#ADMINISTRATOR} is tracked; the row is seeded by the V3 migration.
+ */
+@Entity
+@Table(name = "role_counts")
+public class RoleCount {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private Role role;
+
+    @Column(name = "user_count", nullable = false)
+    private long userCount;
+
+    public RoleCount() {}
+
+    public RoleCount(Role role, long userCount) {
+        this.role = role;
+        this.userCount = userCount;
+    }
+
+    public Role getRole() { return role; }
+    public void setRole(Role role) { this.role = role; }
+
+    public long getUserCount() { return userCount; }
+    public void setUserCount(long userCount) { this.userCount = userCount; }
+}
@@ -1,11 +1,13 @@
 package com.rbac.api.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_created_at_id", columnList = "created_at, id"))
 public class User {
 
     @Id
@@ -28,6 +30,10 @@ public class User {
     @Column(nullable = false)
     private Role role;
 
+    // Optional custom role whose permissions are added to the built-in role's
+    @Column(name = "custom_role", length = 50)
+    private String customRole;
+
     @Column(name = "is_active")
     private boolean isActive = true;
 
@@ -40,6 +46,15 @@ public class User {
     @Column(name = "last_login")
     private LocalDateTime lastLogin;
 
+    // Tokens issued to the user before this epoch second are refused
+    @ColumnDefault("0")
+    @Column(name = "tokens_valid_after", nullable = false)
+    private long tokensValidAfter;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public User() {}
 
     public User(String username, String password, String name, String email, Role role) {
@@ -84,6 +99,9 @@ public class User {
     public Role getRole() { return role; }
     public void setRole(Role role) { this.role = role; }
 
+    public String getCustomRole() { return customRole; }
+    public void setCustomRole(String customRole) { this.customRole = customRole; }
+
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { isActive = active; }
 
@@ -96,10 +114,23 @@ public class User {
     public LocalDateTime getLastLogin() { return lastLogin; }
     public void setLastLogin(LocalDateTime lastLogin) { this.lastLogin = lastLogin; }
 
+    public long getTokensValidAfter() { return tokensValidAfter; }
+    public void setTokensValidAfter(long tokensValidAfter) { this.tokensValidAfter = tokensValidAfter; }
+
+    public long getVersion() { return version; }
+
     public boolean hasPermission(String permission) {
         return role != null && role.hasPermission(permission);
     }
 
+    public boolean hasAllPermissions(PermissionSet required) {
+        return role != null && role.hasAllPermissions(required);
+    }
+
+    public boolean hasAnyPermission(PermissionSet candidates) {
+        return role != null && role.hasAnyPermission(candidates);
+    }
+
     public boolean isAdmin() {
         return role == Role.ADMINISTRATOR;
     }
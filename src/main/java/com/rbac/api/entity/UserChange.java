@@ -0,0 +1,63 @@
+package com.rbac.api.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Outbox row describing one committed change to a user or a custom role. Rows are inserted in
+ * the transaction of the change itself by {@code UserChangeOutbox} and read in id order by
+ * {@code UserChangeRelay}; the id doubles as the offset change feed consumers resume from.
+ */
+@Entity
+@Immutable
+@Table(name = "user_changes", indexes = @Index(name = "idx_user_changes_occurred_at", columnList = "occurred_at"))
+public class UserChange {
+
+    public enum Type {
+        USER_CREATED,
+        USER_UPDATED,
+        USER_ROLE_CHANGED,
+        USER_DELETED,
+        ROLE_DEFINED,
+        ROLE_DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Type type;
+
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(length = 50)
+    private String username;
+
+    // A built-in role constant or a custom role name
+    @Column(length = 50)
+    private String role;
+
+    private Boolean active;
+
+    private Long version;
+
+    protected UserChange() {}
+
+    public Long getId() { return id; }
+    public Instant getOccurredAt() { return occurredAt; }
+    public Type getType() { return type; }
+    public UUID getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public String getRole() { return role; }
+    public Boolean getActive() { return active; }
+    public Long getVersion() { return version; }
+}
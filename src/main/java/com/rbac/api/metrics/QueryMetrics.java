@@ -0,0 +1,93 @@
+package com.rbac.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every JDBC statement by type, whether it comes from Hibernate, Spring Data or
+ * {@code JdbcTemplate}. Statements executed while a {@link Scope} is open on the current thread
+ * are also added to that scope, which is how {@link RequestQueryMetricsFilter} counts queries
+ * per request.
+ */
+@Component
+public class QueryMetrics implements QueryExecutionListener {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<long[]> STARTED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Map<QueryType, Timer> timers = new EnumMap<>(QueryType.class);
+
+    public QueryMetrics(MeterRegistry meterRegistry) {
+        for (QueryType type : QueryType.values()) {
+            timers.put(type, Timer.builder("rbac.db.query")
+                    .tag("type", type.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Starts counting statements on the current thread until the returned scope is closed.
+     */
+    public Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        STARTED.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = System.nanoTime() - STARTED.get()[0];
+        QueryType type = queryInfoList.isEmpty() ? QueryType.OTHER : QueryUtils.getQueryType(queryInfoList.get(0).getQuery());
+        timers.get(type).record(elapsed, TimeUnit.NANOSECONDS);
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.queries++;
+            scope.nanos += elapsed;
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private int queries;
+        private long nanos;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public int queries() {
+            return queries;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        @Override
+        public void close() {
+            if (parent != null) {
+                CURRENT.set(parent);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
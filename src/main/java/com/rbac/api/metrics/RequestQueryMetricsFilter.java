@@ -0,0 +1,63 @@
+package com.rbac.api.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how many statements each request ran and how long it spent in them, tagged by
+ * method and route template so the series stay bounded. Work handed to other threads, such
+ * as streaming response bodies, is not attributed to the request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestQueryMetricsFilter extends OncePerRequestFilter {
+
+    private static final String UNMATCHED = "UNMATCHED";
+    // Statement counts are small integers, so fixed buckets beat the default exponential ones
+    private static final double[] QUERY_COUNT_BUCKETS = { 1, 2, 3, 5, 10, 20, 50, 100, 500 };
+
+    private final QueryMetrics queryMetrics;
+    private final MeterRegistry meterRegistry;
+
+    public RequestQueryMetricsFilter(QueryMetrics queryMetrics, MeterRegistry meterRegistry) {
+        this.queryMetrics = queryMetrics;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryMetrics.Scope scope = queryMetrics.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            scope.close();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = route != null ? route.toString() : UNMATCHED;
+            DistributionSummary.builder("rbac.http.db.queries")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .serviceLevelObjectives(QUERY_COUNT_BUCKETS)
+                    .register(meterRegistry)
+                    .record(scope.queries());
+            Timer.builder("rbac.http.db.time")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(scope.nanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
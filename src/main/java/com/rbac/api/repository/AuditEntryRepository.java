@@ -0,0 +1,27 @@
+package com.rbac.api.repository;
+
+import com.rbac.api.audit.AuditAction;
+import com.rbac.api.entity.AuditEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface AuditEntryRepository extends JpaRepository<AuditEntry, Long> {
+
+    /**
+     * Newest first, strictly before the {@code (before, beforeId)} position and not older than
+     * {@code from}. The first page passes the end of the range with id 0, since ids start at 1.
+     * The bounds on {@code occurredAt} let PostgreSQL skip the partitions outside the range.
+     */
+    @Query("SELECT e FROM AuditEntry e " +
+           "WHERE e.occurredAt >= :from AND e.occurredAt <= :before AND (e.occurredAt, e.id) < (:before, :beforeId) " +
+           "AND (:action IS NULL OR e.action = :action) AND (:subjectId IS NULL OR e.subjectId = :subjectId) " +
+           "ORDER BY e.occurredAt DESC, e.id DESC")
+    List<AuditEntry> findPage(Instant from, Instant before, long beforeId, AuditAction action, UUID subjectId, Limit limit);
+}
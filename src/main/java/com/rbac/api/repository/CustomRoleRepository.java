@@ -0,0 +1,16 @@
+package com.rbac.api.repository;
+
+import com.rbac.api.entity.CustomRole;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CustomRoleRepository extends JpaRepository<CustomRole, String> {
+
+    // Both collections are sets, so fetching them together is one query without duplicate roots
+    @Query("SELECT DISTINCT r FROM CustomRole r LEFT JOIN FETCH r.parents LEFT JOIN FETCH r.grants")
+    List<CustomRole> findAllWithParentsAndGrants();
+}
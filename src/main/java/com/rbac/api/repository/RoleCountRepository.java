@@ -0,0 +1,31 @@
+package com.rbac.api.repository;
+
+import com.rbac.api.entity.Role;
+import com.rbac.api.entity.RoleCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Atomic updates of {@link RoleCount} rows. Both statements run in the caller's transaction, so
+ * the count changes together with the user row and the row lock is held only until that commit.
+ */
+@Repository
+public interface RoleCountRepository extends JpaRepository<RoleCount, Role> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE RoleCount c SET c.userCount = c.userCount + :delta WHERE c.role = :role")
+    int add(Role role, long delta);
+
+    /**
+     * Returns 0 when the role has a single member left. Concurrent callers queue on the row
+     * lock and re-check the condition against the committed count.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RoleCount c SET c.userCount = c.userCount - 1 WHERE c.role = :role AND c.userCount > 1")
+    int removeUnlessLast(Role role);
+}
@@ -0,0 +1,30 @@
+package com.rbac.api.repository;
+
+import com.rbac.api.entity.UserChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    @Query("SELECT c FROM UserChange c WHERE c.id > :after AND c.id <= :through ORDER BY c.id")
+    List<UserChange> findRange(long after, long through, Limit limit);
+
+    @Query("SELECT COALESCE(MIN(c.id), 0) FROM UserChange c")
+    long findMinId();
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM UserChange c WHERE c.occurredAt < :before")
+    long findMaxIdOccurredBefore(Instant before);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserChange c WHERE c.occurredAt < :before")
+    int deleteOlderThan(Instant before);
+}
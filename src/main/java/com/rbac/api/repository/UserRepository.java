@@ -2,36 +2,98 @@ package com.rbac.api.repository;
 
 import com.rbac.api.entity.Role;
 import com.rbac.api.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
 
+    String SELECT_SUMMARY = "SELECT new com.rbac.api.repository.UserSummary(" +
+                            "u.id, u.username, u.name, u.email, u.role, u.customRole, u.isActive, u.createdAt, u.lastLogin, u.version) FROM User u ";
+
     Optional<User> findByUsername(String username);
 
+    // Row lock on this one user, so two requests cannot both act on its current role
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(UUID id);
+
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<UUID> findIdByUsername(String username);
+
     Optional<User> findByEmail(String email);
 
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
 
+    long countByCustomRole(String customRole);
+
+    @Query("SELECT u.id FROM User u WHERE u.customRole IN :customRoles")
+    List<UUID> findIdsByCustomRoleIn(Collection<String> customRoles);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokensValidAfter = :validAfter WHERE u.customRole IN :customRoles")
+    int updateTokensValidAfterByCustomRoleIn(Collection<String> customRoles, long validAfter);
+
+    @Modifying
+    @Query("UPDATE User u SET u.version = u.version + 1 WHERE u.customRole IN :customRoles")
+    int incrementVersionByCustomRoleIn(Collection<String> customRoles);
+
+    @Query("SELECT u.username, u.email FROM User u WHERE u.username IN :usernames OR u.email IN :emails")
+    List<Object[]> findExistingUsernamesAndEmails(Collection<String> usernames, Collection<String> emails);
+
     List<User> findByRole(Role role);
 
     List<User> findByIsActiveTrue();
 
     List<User> findAllByOrderByCreatedAtDesc();
 
-    @Query("SELECT u FROM User u WHERE LOWER(u.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
-           "OR LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%'))")
-    List<User> searchUsers(String search);
+    @Query(SELECT_SUMMARY + "ORDER BY u.createdAt DESC")
+    List<UserSummary> findAllSummaries();
+
+    @Query(SELECT_SUMMARY + "ORDER BY u.createdAt DESC, u.id DESC")
+    List<UserSummary> findSummaryPage(Limit limit);
+
+    @Query(SELECT_SUMMARY + "WHERE (u.createdAt, u.id) < (:createdAt, :id) ORDER BY u.createdAt DESC, u.id DESC")
+    List<UserSummary> findSummaryPageAfter(LocalDateTime createdAt, UUID id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_SUMMARY + "WHERE u.role = :role")
+    Stream<UserSummary> streamSummariesByRole(Role role);
+
+    @Query(SELECT_SUMMARY + "WHERE u.id IN :ids")
+    List<UserSummary> findSummariesByIdIn(Collection<UUID> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1 WHERE u.id = :id")
+    int updatePassword(UUID id, String password);
 
     long countByRole(Role role);
 
+    // Bucket ordinals match UserStats.LoginBucket
+    @Query("SELECT u.role, u.isActive, " +
+           "CASE WHEN u.lastLogin IS NULL THEN 4 WHEN u.lastLogin >= :day THEN 0 WHEN u.lastLogin >= :week THEN 1 " +
+           "WHEN u.lastLogin >= :month THEN 2 ELSE 3 END AS loginBucket, COUNT(u) " +
+           "FROM User u GROUP BY u.role, u.isActive, loginBucket")
+    List<Object[]> countByRoleActiveAndLastLogin(LocalDateTime day, LocalDateTime week, LocalDateTime month);
+
     long countByIsActiveTrue();
 }
@@ -0,0 +1,15 @@
+package com.rbac.api.repository;
+
+import com.rbac.api.entity.Role;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read-only projection of a {@code users} row without the password hash. Built directly from
+ * JPQL constructor expressions, so list queries never hydrate or dirty-check {@code User} entities.
+ */
+public record UserSummary(UUID id, String username, String name, String email, Role role, String customRole,
+                          boolean active, LocalDateTime createdAt, LocalDateTime lastLogin, long version)
+        implements UserView {
+}
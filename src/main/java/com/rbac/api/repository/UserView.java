@@ -0,0 +1,33 @@
+package com.rbac.api.repository;
+
+import com.rbac.api.entity.Role;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The columns of a {@code users} row that the API returns, whichever way the row was read:
+ * the {@link UserSummary} projection and the user cache's copy both expose them.
+ */
+public interface UserView {
+
+    UUID id();
+
+    String username();
+
+    String name();
+
+    String email();
+
+    Role role();
+
+    String customRole();
+
+    boolean active();
+
+    LocalDateTime createdAt();
+
+    LocalDateTime lastLogin();
+
+    long version();
+}
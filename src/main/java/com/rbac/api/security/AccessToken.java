@@ -0,0 +1,20 @@
+package com.rbac.api.security;
+
+import com.rbac.api.entity.PermissionRegistry;
+import com.rbac.api.entity.PermissionSet;
+import com.rbac.api.entity.Role;
+
+import java.util.UUID;
+
+public record AccessToken(long tokenId, UUID userId, Role role, PermissionSet permissions, long expiresAtEpochSecond) {
+
+    public static final String REQUEST_ATTRIBUTE = AccessToken.class.getName();
+
+    public boolean hasPermission(String permission) {
+        return permissions.contains(PermissionRegistry.idOf(permission));
+    }
+
+    public boolean hasPermission(int permissionId) {
+        return permissions.contains(permissionId);
+    }
+}
@@ -0,0 +1,59 @@
+package com.rbac.api.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * BCrypt hasher. Values that are not BCrypt hashes are treated as legacy plaintext passwords:
+ * they still verify, and are always reported as needing a rehash.
+ */
+@Component
+public class BCryptPasswordHasher implements PasswordHasher {
+
+    private final int cost;
+    private final BCryptPasswordEncoder encoder;
+
+    public BCryptPasswordHasher(@Value("${rbac.security.password.bcrypt-cost:10}") int cost) {
+        this.cost = cost;
+        this.encoder = new BCryptPasswordEncoder(cost);
+    }
+
+    @Override
+    public String hash(String rawPassword) {
+        return encoder.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        if (!isBCrypt(encodedPassword)) {
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    encodedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return encoder.matches(rawPassword, encodedPassword);
+    }
+
+    @Override
+    public boolean needsRehash(String encodedPassword) {
+        if (!isBCrypt(encodedPassword)) {
+            return true;
+        }
+        // $2a$10$... -> cost is the two digits after the version prefix
+        int storedCost = Integer.parseInt(encodedPassword.substring(4, 6));
+        return storedCost != cost;
+    }
+
+    private static boolean isBCrypt(String encodedPassword) {
+        return encodedPassword.length() == 60
+                && encodedPassword.startsWith("$2")
+                && encodedPassword.charAt(3) == '$'
+                && Character.isDigit(encodedPassword.charAt(4))
+                && Character.isDigit(encodedPassword.charAt(5));
+    }
+}
@@ -0,0 +1,260 @@
+package com.rbac.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rbac.api.exception.Exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for login attempts, checked before any database lookup or password hash.
+ * Each client address and each username has a token bucket and a failure count; once the
+ * failures reach the threshold the key is locked out for a period that doubles with every further
+ * failure, up to a maximum. Clients get a higher threshold than usernames, since one address can
+ * stand for a whole office behind NAT. Failures are forgotten one per decay interval, so a few
+ * typos spread over a day never add up to a lockout.
+ * <p>
+ * A bucket is kept as its theoretical arrival time (GCRA) in a single {@link AtomicLong}, so
+ * admitting an attempt is one CAS and no lock is taken on the hot path. Keys live in bounded
+ * Caffeine maps that drop them after a period without attempts.
+ */
+@Component
+public class LoginThrottle {
+
+    public enum Kind {
+        CLIENT,
+        USERNAME
+    }
+
+    enum Rejection {
+        CLIENT_RATE,
+        USERNAME_RATE,
+        LOCKED_OUT
+    }
+
+    private final Limit clientLimit;
+    private final Limit usernameLimit;
+    private final long failureDecayNanos;
+    private final long lockoutBaseNanos;
+    private final long lockoutMaxNanos;
+    private final Map<Kind, Cache<String, Bucket>> buckets = new EnumMap<>(Kind.class);
+    private final Map<Rejection, Counter> rejected = new EnumMap<>(Rejection.class);
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${rbac.security.login.client.capacity:20}") int clientCapacity,
+                         @Value("${rbac.security.login.client.refill-interval:PT0.5S}") Duration clientRefill,
+                         @Value("${rbac.security.login.username.capacity:5}") int usernameCapacity,
+                         @Value("${rbac.security.login.username.refill-interval:PT12S}") Duration usernameRefill,
+                         @Value("${rbac.security.login.lockout.threshold:5}") int usernameLockoutThreshold,
+                         @Value("${rbac.security.login.lockout.client-threshold:50}") int clientLockoutThreshold,
+                         @Value("${rbac.security.login.lockout.failure-decay:PT5M}") Duration failureDecay,
+                         @Value("${rbac.security.login.lockout.base:PT1S}") Duration lockoutBase,
+                         @Value("${rbac.security.login.lockout.max:PT15M}") Duration lockoutMax,
+                         @Value("${rbac.security.login.max-tracked:100000}") long maxTracked,
+                         @Value("${rbac.security.login.idle-ttl:PT30M}") Duration idleTtl) {
+        this.clientLimit = new Limit(clientCapacity, clientRefill.toNanos(), clientLockoutThreshold);
+        this.usernameLimit = new Limit(usernameCapacity, usernameRefill.toNanos(), usernameLockoutThreshold);
+        this.failureDecayNanos = failureDecay.toNanos();
+        this.lockoutBaseNanos = lockoutBase.toNanos();
+        this.lockoutMaxNanos = lockoutMax.toNanos();
+
+        // A key must outlive its longest lockout and the decay of a full threshold of failures,
+        // or going quiet would be a way around them
+        Duration ttl = Collections.max(List.of(idleTtl, lockoutMax,
+                failureDecay.multipliedBy(Math.max(clientLockoutThreshold, usernameLockoutThreshold))));
+        for (Kind kind : Kind.values()) {
+            Cache<String, Bucket> cache = Caffeine.newBuilder()
+                    .maximumSize(maxTracked)
+                    .expireAfterAccess(ttl)
+                    .build();
+            buckets.put(kind, cache);
+            Gauge.builder("rbac.auth.throttle.tracked", cache, Cache::estimatedSize)
+                    .tag("kind", kind.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        for (Rejection rejection : Rejection.values()) {
+            rejected.put(rejection, Counter.builder("rbac.auth.throttle.rejected")
+                    .tag("reason", rejection.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Admits one attempt or throws {@link TooManyRequestsException} with the time to wait.
+     * Lockouts are checked first, so a locked-out attempt does not spend a token.
+     */
+    public void acquire(String client, String username) {
+        long now = System.nanoTime();
+        Bucket clientBucket = bucket(Kind.CLIENT, client, now);
+        Bucket usernameBucket = username != null ? bucket(Kind.USERNAME, username, now) : null;
+
+        long locked = Math.max(clientBucket.lockedFor(now), usernameBucket != null ? usernameBucket.lockedFor(now) : 0);
+        if (locked > 0) {
+            throw reject(Rejection.LOCKED_OUT, locked, "Too many failed login attempts, please retry later");
+        }
+        long wait = clientBucket.tryAcquire(now, clientLimit);
+        if (wait > 0) {
+            throw reject(Rejection.CLIENT_RATE, wait, "Too many login attempts from this client, please retry later");
+        }
+        if (usernameBucket != null) {
+            wait = usernameBucket.tryAcquire(now, usernameLimit);
+            if (wait > 0) {
+                throw reject(Rejection.USERNAME_RATE, wait, "Too many login attempts for this user, please retry later");
+            }
+        }
+    }
+
+    public void failed(String client, String username) {
+        long now = System.nanoTime();
+        recordFailure(bucket(Kind.CLIENT, client, now), now, clientLimit);
+        if (username != null) {
+            recordFailure(bucket(Kind.USERNAME, username, now), now, usernameLimit);
+        }
+    }
+
+    // Only the account's count is cleared; a client that owns one valid account must not be able
+    // to reset its own failures while guessing passwords for others
+    public void succeeded(String username) {
+        if (username != null) {
+            Bucket bucket = buckets.get(Kind.USERNAME).getIfPresent(username);
+            if (bucket != null) {
+                bucket.succeeded();
+            }
+        }
+    }
+
+    public Summary summary() {
+        long now = System.nanoTime();
+        Map<Kind, Long> tracked = new EnumMap<>(Kind.class);
+        Map<Kind, Long> lockedOut = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            Cache<String, Bucket> cache = buckets.get(kind);
+            tracked.put(kind, cache.estimatedSize());
+            lockedOut.put(kind, cache.asMap().values().stream().filter(bucket -> bucket.lockedFor(now) > 0).count());
+        }
+        Map<String, Double> rejections = new LinkedHashMap<>();
+        rejected.forEach((rejection, counter) -> rejections.put(rejection.name().toLowerCase(Locale.ROOT), counter.count()));
+        return new Summary(tracked, lockedOut, rejections);
+    }
+
+    public KeyState state(Kind kind, String key) {
+        Bucket bucket = buckets.get(kind).getIfPresent(key);
+        if (bucket == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Limit limit = kind == Kind.CLIENT ? clientLimit : usernameLimit;
+        return new KeyState(bucket.available(now, limit), bucket.failures(now, failureDecayNanos), toSeconds(bucket.lockedFor(now)));
+    }
+
+    private Bucket bucket(Kind kind, String key, long now) {
+        return buckets.get(kind).get(key, k -> new Bucket(now));
+    }
+
+    private void recordFailure(Bucket bucket, long now, Limit limit) {
+        int failures = bucket.fail(now, failureDecayNanos);
+        if (failures >= limit.lockoutThreshold()) {
+            int shift = Math.min(failures - limit.lockoutThreshold(), 62);
+            long lockout = lockoutBaseNanos > lockoutMaxNanos >> shift ? lockoutMaxNanos : lockoutBaseNanos << shift;
+            bucket.lockUntil(now + lockout);
+        }
+    }
+
+    private TooManyRequestsException reject(Rejection rejection, long waitNanos, String message) {
+        rejected.get(rejection).increment();
+        return new TooManyRequestsException(message, toSeconds(waitNanos));
+    }
+
+    private static long toSeconds(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public record Summary(Map<Kind, Long> tracked, Map<Kind, Long> lockedOut, Map<String, Double> rejected) {
+    }
+
+    public record KeyState(long availableTokens, int failures, long lockedForSeconds) {
+    }
+
+    private record Limit(int capacity, long intervalNanos, int lockoutThreshold) {
+
+        long toleranceNanos() {
+            return capacity * intervalNanos;
+        }
+    }
+
+    private static final class Bucket {
+
+        // Time at which the bucket is full again; each admitted attempt pushes it one interval further
+        private final AtomicLong arrival;
+        // Zero until the first lockout; another thread may have created the bucket with a later clock reading
+        private final AtomicLong lockedUntil = new AtomicLong();
+        // Time by which every recorded failure has decayed; each failure pushes it one decay interval
+        // further, so the live count is the distance to it in intervals. Zero when there are none.
+        private final AtomicLong failuresDecayed = new AtomicLong();
+
+        Bucket(long now) {
+            this.arrival = new AtomicLong(now);
+        }
+
+        long tryAcquire(long now, Limit limit) {
+            while (true) {
+                long current = arrival.get();
+                long next = Math.max(current, now) + limit.intervalNanos();
+                long excess = next - now - limit.toleranceNanos();
+                if (excess > 0) {
+                    return excess;
+                }
+                if (arrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        long available(long now, Limit limit) {
+            long used = Math.max(arrival.get() - now, 0);
+            return (limit.toleranceNanos() - used) / limit.intervalNanos();
+        }
+
+        long lockedFor(long now) {
+            long until = lockedUntil.get();
+            return until == 0 ? 0 : Math.max(until - now, 0);
+        }
+
+        void lockUntil(long until) {
+            lockedUntil.accumulateAndGet(until, Math::max);
+        }
+
+        int fail(long now, long decayNanos) {
+            long next = failuresDecayed.accumulateAndGet(now, (current, at) ->
+                    (current == 0 || current - at < 0 ? at : current) + decayNanos);
+            return count(next, now, decayNanos);
+        }
+
+        int failures(long now, long decayNanos) {
+            long until = failuresDecayed.get();
+            return until == 0 ? 0 : count(until, now, decayNanos);
+        }
+
+        private static int count(long until, long now, long decayNanos) {
+            long remaining = until - now;
+            return remaining <= 0 ? 0 : (int) Math.min((remaining + decayNanos - 1) / decayNanos, Integer.MAX_VALUE);
+        }
+
+        void succeeded() {
+            failuresDecayed.set(0);
+        }
+    }
+}
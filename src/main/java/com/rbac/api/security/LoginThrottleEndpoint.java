@@ -0,0 +1,43 @@
+package com.rbac.api.security;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/loginthrottle} reports tracked and locked-out keys and rejection counts;
+ * {@code /actuator/loginthrottle/{client|username}/{key}} shows the state of a single key.
+ */
+@Component
+@Endpoint(id = "loginthrottle")
+public class LoginThrottleEndpoint {
+
+    private final LoginThrottle loginThrottle;
+
+    public LoginThrottleEndpoint(LoginThrottle loginThrottle) {
+        this.loginThrottle = loginThrottle;
+    }
+
+    @ReadOperation
+    public LoginThrottle.Summary summary() {
+        return loginThrottle.summary();
+    }
+
+    @ReadOperation
+    public LoginThrottle.KeyState state(@Selector String kind, @Selector String key) {
+        return loginThrottle.state(parseKind(kind), key);
+    }
+
+    // Answered with 400 rather than the 500 an IllegalArgumentException would give
+    private static LoginThrottle.Kind parseKind(String kind) {
+        for (LoginThrottle.Kind candidate : LoginThrottle.Kind.values()) {
+            if (candidate.name().equalsIgnoreCase(kind)) {
+                return candidate;
+            }
+        }
+        String message = "Unknown kind '" + kind + "', expected client or username";
+        throw new InvalidEndpointRequestException(message, message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.rbac.api.security;
+
+public interface PasswordHasher {
+
+    String hash(String rawPassword);
+
+    boolean matches(String rawPassword, String encodedPassword);
+
+    /**
+     * True when the stored value was produced with different parameters than the current
+     * configuration and should be replaced after the next successful login.
+     */
+    boolean needsRehash(String encodedPassword);
+}
@@ -0,0 +1,173 @@
+package com.rbac.api.security;
+
+import com.rbac.api.exception.Exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs password hashing on a dedicated pool sized to the CPU count so request threads never
+ * compete with each other for hashing CPU. When the bounded queue is full, callers get a 503
+ * instead of piling up behind it.
+ */
+@Service
+public class PasswordHashingService implements DisposableBean {
+
+    private static final long BULK_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final int bulkThreads;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Counter rejected;
+
+    public PasswordHashingService(PasswordHasher hasher,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${rbac.security.password.threads:0}") int threads,
+                                  @Value("${rbac.security.password.queue-capacity:64}") int queueCapacity,
+                                  @Value("${rbac.security.password.timeout:PT5S}") Duration timeout,
+                                  @Value("${rbac.security.password.bulk-threads:0}") int bulkThreads) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // Half the pool by default, leaving the other half free for logins
+        this.bulkThreads = bulkThreads > 0 ? Math.min(bulkThreads, poolSize) : Math.max(1, poolSize / 2);
+        AtomicInteger sequence = new AtomicInteger();
+        this.hasher = hasher;
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("rbac.password.hash")
+                .tag("operation", "hash")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("rbac.password.hash")
+                .tag("operation", "verify")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("rbac.password.hash.rejected").register(meterRegistry);
+        Gauge.builder("rbac.password.hash.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("rbac.password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public String hash(String rawPassword) {
+        return run(() -> hashTimer.record(() -> hasher.hash(rawPassword)));
+    }
+
+    /**
+     * Hashes a batch one password per task, with at most {@code rbac.security.password.bulk-threads}
+     * of them queued or running at a time, so logins never wait behind more than that many bulk
+     * hashes. Each hash has the same timeout as a single operation. When the pool is full, the
+     * batch waits for room for up to that timeout instead of hashing on the calling thread.
+     */
+    public List<String> hashAll(List<String> rawPasswords) {
+        int count = rawPasswords.size();
+        String[] hashes = new String[count];
+        List<Future<String>> futures = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                if (i >= bulkThreads) {
+                    hashes[i - bulkThreads] = await(futures.get(i - bulkThreads), timeout);
+                }
+                String rawPassword = rawPasswords.get(i);
+                futures.add(submitBulk(() -> hashTimer.record(() -> hasher.hash(rawPassword))));
+            }
+            for (int i = Math.max(0, count - bulkThreads); i < count; i++) {
+                hashes[i] = await(futures.get(i), timeout);
+            }
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return Arrays.asList(hashes);
+    }
+
+    private <T> Future<T> submitBulk(Callable<T> task) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            try {
+                return executor.submit(task);
+            } catch (RejectedExecutionException e) {
+                if (System.nanoTime() - deadline >= 0) {
+                    rejected.increment();
+                    throw new ServiceUnavailableException("Too many concurrent password operations, please retry");
+                }
+                LockSupport.parkNanos(BULK_RETRY_NANOS);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new ServiceUnavailableException("Password operation interrupted");
+                }
+            }
+        }
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> verifyTimer.record(() -> hasher.matches(rawPassword, encodedPassword)));
+    }
+
+    public boolean needsRehash(String encodedPassword) {
+        return hasher.needsRehash(encodedPassword);
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many concurrent password operations, please retry");
+        }
+        return await(future, timeout);
+    }
+
+    private <T> T await(Future<T> future, Duration limit) {
+        try {
+            return future.get(limit.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Drops the task if it is still queued; BCrypt does not check for interrupts, so a hash
+            // that already started runs to completion on its pool thread
+            future.cancel(true);
+            rejected.increment();
+            throw new ServiceUnavailableException("Password operation timed out, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Password operation interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
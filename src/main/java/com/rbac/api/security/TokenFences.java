@@ -0,0 +1,137 @@
+package com.rbac.api.security;
+
+import com.rbac.api.cluster.ClusterInvalidation;
+import com.rbac.api.entity.UserChange;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user token fences: a user's tokens issued before the fence are refused. A fence is raised
+ * when the user's role or custom role changes, when the user is deactivated or deleted, and for
+ * the holders of a custom role that loses permissions, so tokens stop carrying access the user
+ * no longer has instead of keeping it until they expire.
+ * <p>
+ * Fences are stored on the user row ({@code tokens_valid_after}) and kept here for as long as a
+ * token issued before them could still be valid. Other nodes are told through
+ * {@link ClusterInvalidation}; on startup and after every resync the fences still in force are
+ * reloaded from the users and, for deleted users, from the {@code user_changes} outbox.
+ */
+@Component
+public class TokenFences implements SmartInitializingSingleton {
+
+    private static final String SELECT_FENCED_USERS = "SELECT id, tokens_valid_after FROM users WHERE tokens_valid_after > ?";
+    private static final String SELECT_DELETED_USERS = "SELECT user_id, occurred_at FROM user_changes WHERE type = ? AND occurred_at > ?";
+    private static final int MIN_PRUNE_SIZE = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterInvalidation clusterInvalidation;
+    private final long ttlSeconds;
+    private final Map<UUID, Long> fences = new ConcurrentHashMap<>();
+    private volatile int pruneAt = MIN_PRUNE_SIZE;
+
+    public TokenFences(JdbcTemplate jdbcTemplate, ClusterInvalidation clusterInvalidation,
+                       @Value("${rbac.security.token.ttl:PT1H}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clusterInvalidation = clusterInvalidation;
+        this.ttlSeconds = ttl.toSeconds();
+        clusterInvalidation.onTokensFenced(this::apply);
+        clusterInvalidation.onResync(this::reload);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    /**
+     * Raises the fence of one user. Call it inside the transaction that changes the user and
+     * store the returned epoch second on the user row.
+     */
+    public long raise(UUID userId) {
+        return raise(List.of(userId));
+    }
+
+    /**
+     * Raises the fence of these users. The fence is the next second, so a token issued earlier
+     * in the current second is refused too. This node applies it once the calling transaction
+     * commits; the other nodes receive it on commit.
+     */
+    public long raise(Collection<UUID> userIds) {
+        long validAfter = Instant.now().getEpochSecond() + 1;
+        clusterInvalidation.publishTokensFenced(userIds, validAfter);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userIds.forEach(userId -> apply(userId, validAfter));
+                }
+            });
+        } else {
+            userIds.forEach(userId -> apply(userId, validAfter));
+        }
+        return validAfter;
+    }
+
+    /**
+     * Epoch second before which the user's tokens are refused, or 0.
+     */
+    public long validAfter(UUID userId) {
+        if (fences.isEmpty()) {
+            return 0;
+        }
+        Long validAfter = fences.get(userId);
+        return validAfter != null ? validAfter : 0;
+    }
+
+    public boolean isFenced(UUID userId, long issuedAtEpochSecond) {
+        return issuedAtEpochSecond < validAfter(userId);
+    }
+
+    public int size() {
+        return fences.size();
+    }
+
+    void apply(UUID userId, long validAfter) {
+        fences.merge(userId, validAfter, Math::max);
+        if (fences.size() >= pruneAt) {
+            prune();
+        }
+    }
+
+    /**
+     * Loads every fence that can still refuse an unexpired token. Fences applied meanwhile are
+     * kept; the later of the two wins.
+     */
+    void reload() {
+        long horizon = Instant.now().getEpochSecond() - ttlSeconds;
+        jdbcTemplate.query(SELECT_FENCED_USERS, (RowCallbackHandler) row ->
+                apply(row.getObject(1, UUID.class), row.getLong(2)), horizon);
+        // A deleted user has no row left to carry the fence
+        jdbcTemplate.query(SELECT_DELETED_USERS, (RowCallbackHandler) row ->
+                        apply(row.getObject(1, UUID.class), row.getObject(2, OffsetDateTime.class).toEpochSecond() + 1),
+                UserChange.Type.USER_DELETED.name(), OffsetDateTime.ofInstant(Instant.ofEpochSecond(horizon), ZoneOffset.UTC));
+        prune();
+    }
+
+    // A fence at or before now - ttl only refuses tokens that have expired anyway
+    private void prune() {
+        long horizon = Instant.now().getEpochSecond() - ttlSeconds;
+        fences.values().removeIf(validAfter -> validAfter <= horizon);
+        pruneAt = Math.max(MIN_PRUNE_SIZE, fences.size() * 2);
+    }
+}
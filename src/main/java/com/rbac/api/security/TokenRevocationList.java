@@ -0,0 +1,81 @@
+package com.rbac.api.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Bounded set of revoked token ids. Entries are dropped once the token would have expired
+ * anyway. An unexpired revocation is never forgotten: when the bound is reached, the entries
+ * that expire first become {@link TokenFences fences} for their users instead, refusing the
+ * revoked token and every token the same user was issued before it
+ * ({@code rbac.tokens.revocations.fenced}). Only those users have to log in again, and one
+ * fence covers all of a user's revocations, which keeps memory bounded under a flood of logouts.
+ * <p>
+ * Such fences are local: every instance receives the same revocations and overflows on its own.
+ */
+@Component
+public class TokenRevocationList {
+
+    private final TokenFences tokenFences;
+    private final long ttlSeconds;
+    private final int maxEntries;
+    private final Counter fenced;
+    private final Map<Long, Long> revoked = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> byExpiry = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(Entry::expiresAt).thenComparingLong(Entry::tokenId));
+
+    public TokenRevocationList(TokenFences tokenFences, MeterRegistry meterRegistry,
+                               @Value("${rbac.security.token.ttl:PT1H}") Duration ttl,
+                               @Value("${rbac.security.token.revocation.max-entries:100000}") int maxEntries) {
+        this.tokenFences = tokenFences;
+        this.ttlSeconds = ttl.toSeconds();
+        this.maxEntries = maxEntries;
+        this.fenced = Counter.builder("rbac.tokens.revocations.fenced")
+                .description("Revocations turned into a fence for the user because the revocation list was full")
+                .register(meterRegistry);
+    }
+
+    public void revoke(long tokenId, UUID userId, long expiresAtEpochSecond) {
+        if (revoked.putIfAbsent(tokenId, expiresAtEpochSecond) == null) {
+            byExpiry.add(new Entry(expiresAtEpochSecond, tokenId, userId));
+        }
+        evict(Instant.now().getEpochSecond());
+    }
+
+    public boolean isRevoked(long tokenId) {
+        return !revoked.isEmpty() && revoked.containsKey(tokenId);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private void evict(long nowEpochSecond) {
+        Entry first;
+        while ((first = byExpiry.pollFirst()) != null) {
+            if (first.expiresAt() > nowEpochSecond && revoked.size() <= maxEntries) {
+                byExpiry.add(first);
+                return;
+            }
+            if (first.expiresAt() > nowEpochSecond) {
+                // The fence goes in before the entry leaves, so the token is refused throughout
+                tokenFences.apply(first.userId(), first.expiresAt() - ttlSeconds + 1);
+                fenced.increment();
+            }
+            revoked.remove(first.tokenId());
+        }
+    }
+
+    private record Entry(long expiresAt, long tokenId, UUID userId) {}
+}
@@ -0,0 +1,201 @@
+package com.rbac.api.security;
+
+import com.rbac.api.cluster.ClusterInvalidation;
+import com.rbac.api.entity.PermissionSet;
+import com.rbac.api.entity.Role;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and verifies compact HMAC-SHA256 access tokens.
+ * <p>
+ * Layout before base64url encoding: version (1), token id (8), user id (16), role ordinal (1),
+ * expiry epoch seconds (8), permission word count (1), permission words (8 each), MAC (32).
+ * <p>
+ * Revocations are sent to the other instances through {@link ClusterInvalidation}. They are
+ * not stored, so an instance that was not listening when a token was revoked keeps accepting
+ * it until it expires.
+ * <p>
+ * A token is also refused once its user's {@link TokenFences fence} has moved past the time it
+ * was issued, taken to be its expiry minus the ttl. Tokens are never issued before the user's
+ * fence, so logging in again right after a change yields a token that is accepted.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 1 + 8 + 16 + 1 + 8 + 1;
+    private static final int MAC_LENGTH = 32;
+    private static final Role[] ROLES = Role.values();
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final TokenRevocationList revocationList;
+    private final TokenFences tokenFences;
+    private final ClusterInvalidation clusterInvalidation;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Mac> macs;
+    private final ThreadLocal<byte[]> macBuffers = ThreadLocal.withInitial(() -> new byte[MAC_LENGTH]);
+
+    public TokenService(@Value("${rbac.security.token.secret:}") String secret,
+                        @Value("${rbac.security.token.ttl:PT1H}") Duration ttl,
+                        TokenRevocationList revocationList,
+                        TokenFences tokenFences,
+                        ClusterInvalidation clusterInvalidation) {
+        this.key = new SecretKeySpec(resolveSecret(secret), ALGORITHM);
+        this.ttl = ttl;
+        this.revocationList = revocationList;
+        this.tokenFences = tokenFences;
+        this.clusterInvalidation = clusterInvalidation;
+        clusterInvalidation.onTokenRevoked(revocationList::revoke);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public String issue(UUID userId, Role role) {
+        return issue(userId, role, role.getPermissionSet());
+    }
+
+    /**
+     * Issues a token carrying {@code permissions}, which may include grants from a custom role
+     * on top of {@code role}'s own.
+     */
+    public String issue(UUID userId, Role role, PermissionSet permissions) {
+        int words = permissions.wordCount();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + words * 8 + MAC_LENGTH);
+        buffer.put(VERSION);
+        buffer.putLong(random.nextLong());
+        buffer.putLong(userId.getMostSignificantBits());
+        buffer.putLong(userId.getLeastSignificantBits());
+        buffer.put((byte) role.ordinal());
+        long issuedAt = Math.max(Instant.now().getEpochSecond(), tokenFences.validAfter(userId));
+        buffer.putLong(issuedAt + ttl.toSeconds());
+        buffer.put((byte) words);
+        for (int i = 0; i < words; i++) {
+            buffer.putLong(permissions.word(i));
+        }
+        byte[] token = buffer.array();
+        sign(token, buffer.position(), token, buffer.position());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Returns the verified token, or {@code null} if it is malformed, forged, expired, revoked or
+     * fenced off.
+     */
+    public AccessToken verify(String encoded) {
+        byte[] token;
+        try {
+            token = Base64.getUrlDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (token.length < HEADER_LENGTH + MAC_LENGTH || token[0] != VERSION) {
+            return null;
+        }
+        int words = token[HEADER_LENGTH - 1] & 0xFF;
+        int payloadLength = HEADER_LENGTH + words * 8;
+        if (token.length != payloadLength + MAC_LENGTH) {
+            return null;
+        }
+
+        byte[] expected = macBuffers.get();
+        sign(token, payloadLength, expected, 0);
+        int diff = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            diff |= expected[i] ^ token[payloadLength + i];
+        }
+        if (diff != 0) {
+            return null;
+        }
+
+        long expiresAt = readLong(token, 26);
+        if (expiresAt <= Instant.now().getEpochSecond()) {
+            return null;
+        }
+        long tokenId = readLong(token, 1);
+        if (revocationList.isRevoked(tokenId)) {
+            return null;
+        }
+        int roleOrdinal = token[25] & 0xFF;
+        if (roleOrdinal >= ROLES.length) {
+            return null;
+        }
+        UUID userId = new UUID(readLong(token, 9), readLong(token, 17));
+        if (tokenFences.isFenced(userId, expiresAt - ttl.toSeconds())) {
+            return null;
+        }
+
+        long[] permissionWords = new long[words];
+        for (int i = 0; i < words; i++) {
+            permissionWords[i] = readLong(token, HEADER_LENGTH + i * 8);
+        }
+        return new AccessToken(tokenId, userId, ROLES[roleOrdinal], PermissionSet.fromWords(permissionWords), expiresAt);
+    }
+
+    public void revoke(AccessToken token) {
+        revocationList.revoke(token.tokenId(), token.userId(), token.expiresAtEpochSecond());
+        clusterInvalidation.publishTokenRevoked(token.tokenId(), token.userId(), token.expiresAtEpochSecond());
+    }
+
+    private void sign(byte[] input, int length, byte[] output, int offset) {
+        Mac mac = macs.get();
+        mac.update(input, 0, length);
+        try {
+            mac.doFinal(output, offset);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static byte[] resolveSecret(String secret) {
+        if (secret != null && !secret.isBlank()) {
+            byte[] decoded = Base64.getDecoder().decode(secret.trim());
+            if (decoded.length < 32) {
+                throw new IllegalStateException("rbac.security.token.secret must be at least 256 bits");
+            }
+            return decoded;
+        }
+        log.warn("No rbac.security.token.secret configured, using a random key; tokens will not survive a restart");
+        byte[] generated = new byte[32];
+        new SecureRandom().nextBytes(generated);
+        return generated;
+    }
+}
@@ -0,0 +1,111 @@
+package com.rbac.api.service;
+
+import com.rbac.api.audit.AuditAction;
+import com.rbac.api.dto.Dtos.AuditEventResponse;
+import com.rbac.api.dto.Dtos.AuditPage;
+import com.rbac.api.entity.AuditEntry;
+import com.rbac.api.exception.Exceptions.ValidationException;
+import com.rbac.api.repository.AuditEntryRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Pages through the audit trail newest first within a time range. Events still in the
+ * {@code AuditLog} buffer show up once the writer has flushed them.
+ */
+@Service
+public class AuditService {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final Duration DEFAULT_RANGE = Duration.ofDays(1);
+
+    private final AuditEntryRepository auditEntryRepository;
+
+    public AuditService(AuditEntryRepository auditEntryRepository) {
+        this.auditEntryRepository = auditEntryRepository;
+    }
+
+    /**
+     * Events in {@code [from, to)}, optionally narrowed to one action and to one user. Without
+     * a range the last day is returned. A cursor carries on from the previous page; it must be
+     * used with the same filters.
+     */
+    @Transactional(readOnly = true)
+    public AuditPage getEvents(Instant from, Instant to, String action, UUID userId, String cursor, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_RANGE);
+        if (!start.isBefore(end)) {
+            throw new ValidationException("from must be before to");
+        }
+        AuditAction auditAction = parseAction(action);
+
+        PageCursor before = cursor == null || cursor.isBlank() ? new PageCursor(end, 0L) : PageCursor.decode(cursor);
+        if (before.occurredAt().isAfter(end)) {
+            throw new ValidationException("Cursor is outside the requested range");
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        List<AuditEntry> entries = auditEntryRepository.findPage(start, before.occurredAt(), before.id(),
+                auditAction, userId, Limit.of(pageSize + 1));
+        boolean hasMore = entries.size() > pageSize;
+        List<AuditEntry> page = hasMore ? entries.subList(0, pageSize) : entries;
+        List<AuditEventResponse> items = page.stream()
+                .map(AuditService::toResponse)
+                .toList();
+        String nextCursor = hasMore ? PageCursor.of(page.get(pageSize - 1)).encode() : null;
+        return new AuditPage(items, nextCursor);
+    }
+
+    private static AuditAction parseAction(String action) {
+        if (action == null || action.isBlank()) {
+            return null;
+        }
+        try {
+            return AuditAction.valueOf(action.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unknown audit action: " + action);
+        }
+    }
+
+    private static AuditEventResponse toResponse(AuditEntry entry) {
+        return new AuditEventResponse(entry.getId(), entry.getOccurredAt(), entry.getAction().name(), entry.getActorId(),
+                entry.getSubjectId(), entry.getSubjectName(), entry.getClient(), entry.getDetail());
+    }
+
+    private record PageCursor(Instant occurredAt, long id) {
+
+        static PageCursor of(AuditEntry entry) {
+            return new PageCursor(entry.getOccurredAt(), entry.getId());
+        }
+
+        static PageCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new PageCursor(Instant.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new ValidationException("Invalid cursor");
+            }
+        }
+
+        String encode() {
+            String raw = occurredAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
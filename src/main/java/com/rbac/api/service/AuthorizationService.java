@@ -0,0 +1,129 @@
+package com.rbac.api.service;
+
+import com.rbac.api.dto.Dtos.AuthorizationCheck;
+import com.rbac.api.dto.Dtos.AuthorizationDecisions;
+import com.rbac.api.entity.PermissionRegistry;
+import com.rbac.api.entity.PermissionSet;
+import com.rbac.api.entity.Role;
+import com.rbac.api.exception.Exceptions.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Answers batches of "may user U use permission P" for other services. The distinct users are
+ * resolved in one cache pass, with every miss loaded by a single query, and the distinct
+ * permissions are checked once against every distinct permission set: each built-in role, and
+ * each built-in and custom role pair that occurs. What is left per check is two array reads
+ * and a table lookup. Unknown and deactivated users are denied everything.
+ */
+@Service
+public class AuthorizationService {
+
+    private static final Role[] ROLES = Role.values();
+    private static final int DENY = -1;
+
+    private final UserCache userCache;
+    private final RoleHierarchy roleHierarchy;
+    private final int maxChecks;
+
+    public AuthorizationService(UserCache userCache, RoleHierarchy roleHierarchy,
+                                @Value("${rbac.authorization.max-checks:10000}") int maxChecks) {
+        this.userCache = userCache;
+        this.roleHierarchy = roleHierarchy;
+        this.maxChecks = maxChecks;
+    }
+
+    public AuthorizationDecisions decide(List<AuthorizationCheck> checks) {
+        if (checks == null) {
+            throw new ValidationException("checks is required");
+        }
+        int count = checks.size();
+        if (count > maxChecks) {
+            throw new ValidationException("At most " + maxChecks + " checks are allowed per request, got " + count);
+        }
+
+        // Number the distinct users and permissions so the loop below only indexes arrays
+        Map<UUID, Integer> userSlots = new HashMap<>();
+        Map<String, Integer> permissionSlots = new HashMap<>();
+        int[] userOf = new int[count];
+        int[] permissionOf = new int[count];
+        for (int i = 0; i < count; i++) {
+            AuthorizationCheck check = checks.get(i);
+            if (check == null || check.getUserId() == null || check.getPermission() == null) {
+                throw new ValidationException("checks[" + i + "] needs a userId and a permission");
+            }
+            userOf[i] = slot(userSlots, check.getUserId());
+            permissionOf[i] = slot(permissionSlots, check.getPermission());
+        }
+
+        // A profile is one distinct permission set: each built-in role, then every combination
+        // of a built-in role and a custom role that occurs among the users
+        Map<UUID, CachedUser> users = userCache.findAllById(userSlots.keySet());
+        List<PermissionSet> profiles = new ArrayList<>(ROLES.length);
+        for (Role role : ROLES) {
+            profiles.add(role.getPermissionSet());
+        }
+        Map<String, Integer> customProfiles = new HashMap<>();
+        int[] profileOf = new int[userSlots.size()];
+        List<UUID> unknownUsers = new ArrayList<>();
+        userSlots.forEach((id, slot) -> {
+            CachedUser user = users.get(id);
+            if (user == null) {
+                unknownUsers.add(id);
+            }
+            if (user == null || !user.active()) {
+                profileOf[slot] = DENY;
+            } else if (user.customRole() == null) {
+                profileOf[slot] = user.role().ordinal();
+            } else {
+                profileOf[slot] = customProfiles.computeIfAbsent(user.role().name() + "+" + user.customRole(), key -> {
+                    profiles.add(roleHierarchy.permissions(user.role(), user.customRole()));
+                    return profiles.size() - 1;
+                });
+            }
+        });
+
+        // granted[profile * permissions + permission]
+        int permissions = permissionSlots.size();
+        boolean[] granted = new boolean[profiles.size() * permissions];
+        List<String> unknownPermissions = new ArrayList<>();
+        permissionSlots.forEach((name, slot) -> {
+            int id = PermissionRegistry.idOf(name);
+            if (id == PermissionRegistry.UNKNOWN) {
+                unknownPermissions.add(name);
+                return;
+            }
+            for (int profile = 0; profile < profiles.size(); profile++) {
+                granted[profile * permissions + slot] = profiles.get(profile).contains(id);
+            }
+        });
+
+        byte[] decisions = new byte[(count + 7) >>> 3];
+        int allowed = 0;
+        for (int i = 0; i < count; i++) {
+            int profile = profileOf[userOf[i]];
+            if (profile != DENY && granted[profile * permissions + permissionOf[i]]) {
+                decisions[i >>> 3] |= (byte) (1 << (i & 7));
+                allowed++;
+            }
+        }
+        return new AuthorizationDecisions(count, allowed, Base64.getEncoder().encodeToString(decisions),
+                unknownUsers, unknownPermissions);
+    }
+
+    private static <K> int slot(Map<K, Integer> slots, K key) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(key, slot);
+        }
+        return slot;
+    }
+}
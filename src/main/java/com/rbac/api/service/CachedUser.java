@@ -0,0 +1,22 @@
+package com.rbac.api.service;
+
+import com.rbac.api.entity.Role;
+import com.rbac.api.entity.User;
+import com.rbac.api.repository.UserView;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Immutable copy of a {@link User} row held by {@link UserCache}, so cached state can be
+ * shared across threads without exposing a JPA entity.
+ */
+public record CachedUser(UUID id, String username, String password, String name, String email, Role role, String customRole,
+                         boolean active, LocalDateTime createdAt, LocalDateTime lastLogin, long version)
+        implements UserView {
+
+    public static CachedUser of(User user) {
+        return new CachedUser(user.getId(), user.getUsername(), user.getPassword(), user.getName(), user.getEmail(),
+                user.getRole(), user.getCustomRole(), user.isActive(), user.getCreatedAt(), user.getLastLogin(), user.getVersion());
+    }
+}
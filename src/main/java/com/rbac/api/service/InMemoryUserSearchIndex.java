@@ -0,0 +1,185 @@
+package com.rbac.api.service;
+
+import com.rbac.api.entity.User;
+import com.rbac.api.repository.UserRepository;
+import com.rbac.api.repository.UserSummary;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index kept in process for databases without pg_trgm (e.g. H2 profiles). It is built
+ * from the repository on first use and maintained by {@link UserService} afterwards.
+ */
+@Component
+@ConditionalOnProperty(name = "rbac.search.engine", havingValue = "memory")
+public class InMemoryUserSearchIndex implements UserSearchIndex {
+
+    private final UserRepository userRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final Map<String, Set<UUID>> postings = new HashMap<>();
+    private boolean loaded;
+
+    public InMemoryUserSearchIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public List<UserSummary> search(String query, int limit) {
+        ensureLoaded();
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (UUID id : candidates(normalized)) {
+                Entry entry = entries.get(id);
+                int rank = entry != null ? entry.rank(normalized) : -1;
+                if (rank >= 0) {
+                    matches.add(new Match(id, rank, entry.username()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingInt(Match::rank).thenComparing(Match::username));
+        List<UUID> ids = matches.stream().limit(limit).map(Match::id).toList();
+        Map<UUID, UserSummary> users = new HashMap<>();
+        userRepository.findSummariesByIdIn(ids).forEach(user -> users.put(user.id(), user));
+        return ids.stream().map(users::get).filter(user -> user != null).toList();
+    }
+
+    @Override
+    public void index(User user) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                removeEntry(user.getId());
+                addEntry(user.getId(), user.getUsername(), user.getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                for (UserSummary user : userRepository.findAllSummaries()) {
+                    addEntry(user.id(), user.username(), user.name());
+                }
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Iterable<UUID> candidates(String query) {
+        if (query.length() < 3) {
+            return entries.keySet();
+        }
+        Set<UUID> result = null;
+        for (String trigram : trigramsOf(query)) {
+            Set<UUID> posting = postings.get(trigram);
+            if (posting == null) {
+                return Set.of();
+            }
+            if (result == null) {
+                result = new HashSet<>(posting);
+            } else {
+                result.retainAll(posting);
+            }
+        }
+        return result != null ? result : Set.of();
+    }
+
+    private void addEntry(UUID id, String username, String name) {
+        Entry entry = new Entry(username.toLowerCase(Locale.ROOT), name.toLowerCase(Locale.ROOT));
+        entries.put(id, entry);
+        for (String trigram : entry.trigrams()) {
+            postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void removeEntry(UUID id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String trigram : entry.trigrams()) {
+            Set<UUID> posting = postings.get(trigram);
+            if (posting != null && posting.remove(id) && posting.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    private static Set<String> trigramsOf(String value) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            result.add(value.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private record Match(UUID id, int rank, String username) {}
+
+    private record Entry(String username, String name) {
+
+        Set<String> trigrams() {
+            Set<String> result = trigramsOf(username);
+            result.addAll(trigramsOf(name));
+            return result;
+        }
+
+        // Mirrors the ORDER BY of UserRepository.searchRanked; -1 means no match
+        int rank(String query) {
+            if (username.equals(query)) {
+                return 0;
+            }
+            if (username.startsWith(query)) {
+                return 1;
+            }
+            if (name.startsWith(query) || name.contains(" " + query)) {
+                return 2;
+            }
+            if (query.length() >= 3 && (username.contains(query) || name.contains(query))) {
+                return 3;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.rbac.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind buffer for {@code users.last_login}. Logins only record a timestamp in memory;
+ * repeated logins by the same user are coalesced and flushed as batched JDBC updates on an
+ * interval, when the buffer reaches the batch size, and once more on shutdown. Flushes run on the
+ * shared task scheduler.
+ * <p>
+ * {@code last_login} is part of the user resource, so each write also bumps the row version
+ * and evicts the cached copy; the user's ETag changes once the login is flushed.
+ */
+@Component
+public class LastLoginRecorder implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    private static final String UPDATE_SQL =
+            "UPDATE users SET last_login = ?, version = version + 1 WHERE id = ? AND (last_login IS NULL OR last_login < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCache userCache;
+    private final int batchSize;
+    private final Map<UUID, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final TaskScheduler taskScheduler;
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate, UserCache userCache, TaskScheduler taskScheduler,
+                             @Value("${rbac.login.last-login.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userCache = userCache;
+        this.taskScheduler = taskScheduler;
+        this.batchSize = batchSize;
+    }
+
+    public void record(UUID userId, LocalDateTime loginAt) {
+        pending.merge(userId, loginAt, (current, next) -> next.isAfter(current) ? next : current);
+        if (pending.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flushQuietly, Instant.now());
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    void flush() {
+        flushScheduled.set(false);
+        List<Object[]> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+        for (UUID userId : pending.keySet()) {
+            LocalDateTime loginAt = pending.remove(userId);
+            if (loginAt == null) {
+                continue;
+            }
+            Timestamp timestamp = Timestamp.valueOf(loginAt);
+            batch.add(new Object[] { timestamp, userId, timestamp });
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Object[]> batch) {
+        try {
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+            List<UUID> changed = new ArrayList<>(updated.length);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] != 0) {
+                    changed.add((UUID) batch.get(i)[1]);
+                }
+            }
+            userCache.invalidate(changed);
+        } catch (RuntimeException e) {
+            // Put the timestamps back so the next flush retries them
+            for (Object[] row : batch) {
+                LocalDateTime loginAt = ((Timestamp) row[0]).toLocalDateTime();
+                pending.merge((UUID) row[1], loginAt, (current, next) -> next.isAfter(current) ? next : current);
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${rbac.login.last-login.flush-interval:PT5S}",
+               fixedDelayString = "${rbac.login.last-login.flush-interval:PT5S}")
+    void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} last-login timestamps, will retry", pending.size(), e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flushQuietly();
+    }
+}
@@ -0,0 +1,48 @@
+package com.rbac.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Login attempts by outcome, with failures tagged by reason. Counters are registered up front
+ * so every series is exported from startup, even before the first failure of a kind.
+ */
+@Component
+public class LoginMetrics {
+
+    enum Failure {
+        UNKNOWN_USER,
+        BAD_PASSWORD,
+        DEACTIVATED,
+        UNAVAILABLE
+    }
+
+    private final Counter succeeded;
+    private final Map<Failure, Counter> failed = new EnumMap<>(Failure.class);
+
+    public LoginMetrics(MeterRegistry meterRegistry) {
+        this.succeeded = Counter.builder("rbac.auth.login")
+                .tag("outcome", "success")
+                .tag("reason", "none")
+                .register(meterRegistry);
+        for (Failure reason : Failure.values()) {
+            failed.put(reason, Counter.builder("rbac.auth.login")
+                    .tag("outcome", "failure")
+                    .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    void succeeded() {
+        succeeded.increment();
+    }
+
+    void failed(Failure reason) {
+        failed.get(reason).increment();
+    }
+}
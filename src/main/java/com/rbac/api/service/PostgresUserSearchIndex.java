@@ -0,0 +1,76 @@
+package com.rbac.api.service;
+
+import com.rbac.api.entity.Role;
+import com.rbac.api.repository.UserSummary;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Runs search against the pg_trgm GIN indexes created by the V2 migration. Queries shorter than
+ * a trigram only match prefixes, which the same indexes can still serve. Rows are mapped straight
+ * to {@link UserSummary}; the password column is never selected.
+ */
+@Component
+@ConditionalOnProperty(name = "rbac.search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresUserSearchIndex implements UserSearchIndex {
+
+    private static final String SEARCH_SQL =
+            "SELECT u.id, u.username, u.name, u.email, u.role, u.custom_role, u.is_active, u.created_at, u.last_login, u.version FROM users u " +
+            "WHERE lower(u.username) LIKE ? OR lower(u.name) LIKE ? OR lower(u.name) LIKE ? " +
+            "ORDER BY CASE WHEN lower(u.username) = ? THEN 0 " +
+            "WHEN lower(u.username) LIKE ? THEN 1 " +
+            "WHEN lower(u.name) LIKE ? OR lower(u.name) LIKE ? THEN 2 ELSE 3 END, " +
+            "greatest(similarity(lower(u.username), ?), similarity(lower(u.name), ?)) DESC, " +
+            "u.username " +
+            "LIMIT ?";
+
+    private static final RowMapper<UserSummary> ROW_MAPPER = (rs, rowNum) -> new UserSummary(
+            rs.getObject("id", UUID.class),
+            rs.getString("username"),
+            rs.getString("name"),
+            rs.getString("email"),
+            Role.valueOf(rs.getString("role")),
+            rs.getString("custom_role"),
+            rs.getBoolean("is_active"),
+            toLocalDateTime(rs.getTimestamp("created_at")),
+            toLocalDateTime(rs.getTimestamp("last_login")),
+            rs.getLong("version"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostgresUserSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<UserSummary> search(String query, int limit) {
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        String escaped = escapeLike(normalized);
+        String prefix = escaped + "%";
+        String pattern = normalized.length() < 3 ? prefix : "%" + prefix;
+        String wordPrefix = "% " + prefix;
+        return jdbcTemplate.query(SEARCH_SQL, ROW_MAPPER,
+                pattern, pattern, wordPrefix,
+                normalized,
+                prefix,
+                prefix, wordPrefix,
+                normalized, normalized,
+                limit);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
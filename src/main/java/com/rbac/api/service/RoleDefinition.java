@@ -0,0 +1,97 @@
+package com.rbac.api.service;
+
+import com.rbac.api.entity.PermissionRegistry;
+import com.rbac.api.entity.PermissionSet;
+import com.rbac.api.entity.Role;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Resolved view of a built-in or custom role, held by {@link RoleHierarchy}. The permissions and
+ * ancestors are the transitive closure over the parents; ancestors are kept as a bitset of the
+ * {@code index} every role gets in its snapshot, so inheritance checks are a single bit test.
+ */
+public final class RoleDefinition {
+
+    private final int index;
+    private final String name;
+    private final int level;
+    private final boolean builtIn;
+    private final String description;
+    private final List<String> parents;
+    private final List<String> grants;
+    private final List<String> permissions;
+    private final PermissionSet permissionSet;
+    private final BitSet ancestors;
+
+    RoleDefinition(int index, String name, int level, boolean builtIn, String description, List<String> parents,
+                   List<String> grants, PermissionSet permissionSet, BitSet ancestors) {
+        this.index = index;
+        this.name = name;
+        this.level = level;
+        this.builtIn = builtIn;
+        this.description = description;
+        this.parents = parents;
+        this.grants = grants;
+        this.permissions = permissionSet.names();
+        this.permissionSet = permissionSet;
+        this.ancestors = ancestors;
+    }
+
+    // Built-in roles take the first indexes, in declaration order
+    static RoleDefinition of(Role role) {
+        BitSet ancestors = new BitSet();
+        for (Role other : Role.values()) {
+            if (other != role && role.includes(other)) {
+                ancestors.set(other.ordinal());
+            }
+        }
+        return new RoleDefinition(role.ordinal(), role.name(), role.getLevel(), true, null,
+                role.getParents().stream().map(Role::name).toList(), role.getGrants(), role.getPermissionSet(), ancestors);
+    }
+
+    int index() { return index; }
+
+    // Callers only read it; it is never modified after the snapshot is built
+    BitSet ancestors() { return ancestors; }
+
+    public String name() { return name; }
+
+    public int level() { return level; }
+
+    public boolean builtIn() { return builtIn; }
+
+    public String description() { return description; }
+
+    public List<String> parents() { return parents; }
+
+    public List<String> grants() { return grants; }
+
+    public List<String> permissions() { return permissions; }
+
+    public PermissionSet permissionSet() { return permissionSet; }
+
+    public boolean hasPermission(String permission) {
+        return permissionSet.contains(PermissionRegistry.idOf(permission));
+    }
+
+    public boolean hasPermission(int permissionId) {
+        return permissionSet.contains(permissionId);
+    }
+
+    /**
+     * Whether this role ranks at or above {@code minimum}.
+     */
+    public boolean isAtLeast(Role minimum) {
+        return level >= minimum.getLevel();
+    }
+
+    /**
+     * Whether this role is {@code other} or inherits from it, directly or transitively. Both must
+     * come from the same snapshot.
+     */
+    public boolean includes(RoleDefinition other) {
+        return this == other || ancestors.get(other.index);
+    }
+}
@@ -0,0 +1,235 @@
+package com.rbac.api.service;
+
+import com.rbac.api.cluster.ClusterInvalidation;
+import com.rbac.api.entity.CustomRole;
+import com.rbac.api.entity.PermissionSet;
+import com.rbac.api.entity.Role;
+import com.rbac.api.repository.CustomRoleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Effective definitions of the built-in roles and the custom roles stored in the database.
+ * The transitive closure of every role is computed once into an immutable {@link Snapshot},
+ * so a check is a map lookup and a bitset test. A change builds a new snapshot and swaps it
+ * in whole; readers never see a half-applied hierarchy.
+ * <p>
+ * The snapshot is reloaded after each local change, when another instance announces a change
+ * through {@link ClusterInvalidation}, and on a fixed interval as a backstop.
+ */
+@Component
+public class RoleHierarchy {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleHierarchy.class);
+
+    static final int MIN_LEVEL = Role.VIEWER.getLevel();
+    static final int MAX_LEVEL = Role.ADMINISTRATOR.getLevel();
+
+    private final CustomRoleRepository customRoleRepository;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public RoleHierarchy(CustomRoleRepository customRoleRepository, ClusterInvalidation clusterInvalidation,
+                         TaskScheduler taskScheduler) {
+        this.customRoleRepository = customRoleRepository;
+        // Reload off the listener thread so a slow query does not hold up other invalidations
+        clusterInvalidation.onRolesChanged(() -> taskScheduler.schedule(this::refreshQuietly, Instant.now()));
+        clusterInvalidation.onResync(() -> taskScheduler.schedule(this::refreshQuietly, Instant.now()));
+    }
+
+    public List<RoleDefinition> roles() {
+        return current().ordered();
+    }
+
+    public Optional<RoleDefinition> find(String name) {
+        return Optional.ofNullable(current().byName().get(name));
+    }
+
+    public boolean hasPermission(String role, String permission) {
+        RoleDefinition definition = current().byName().get(role);
+        return definition != null && definition.hasPermission(permission);
+    }
+
+    /**
+     * Effective permissions of a user: the built-in role's, plus those of the custom role if one
+     * is assigned. A custom role that no longer resolves adds nothing.
+     */
+    public PermissionSet permissions(Role role, String customRole) {
+        if (customRole == null) {
+            return role.getPermissionSet();
+        }
+        RoleDefinition custom = current().byName().get(customRole);
+        return custom != null ? role.getPermissionSet().union(custom.permissionSet()) : role.getPermissionSet();
+    }
+
+    public boolean isCustom(String name) {
+        RoleDefinition definition = current().byName().get(name);
+        return definition != null && !definition.builtIn();
+    }
+
+    public boolean isAtLeast(String role, Role minimum) {
+        RoleDefinition definition = current().byName().get(role);
+        return definition != null && definition.isAtLeast(minimum);
+    }
+
+    public boolean includes(String role, String ancestor) {
+        Map<String, RoleDefinition> byName = current().byName();
+        RoleDefinition definition = byName.get(role);
+        RoleDefinition other = byName.get(ancestor);
+        return definition != null && other != null && definition.includes(other);
+    }
+
+    Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            current = snapshot.get();
+            return current != null ? current : refresh();
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    Snapshot refresh() {
+        loadLock.lock();
+        try {
+            Snapshot loaded = Snapshot.build(customRoleRepository.findAllWithParentsAndGrants());
+            loaded.rejected().forEach((name, reason) -> log.warn("Ignoring custom role {}: {}", name, reason));
+            snapshot.set(loaded);
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${rbac.roles.refresh-interval:PT1M}",
+               fixedDelayString = "${rbac.roles.refresh-interval:PT1M}")
+    void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload custom roles, keeping the previous hierarchy", e);
+        }
+    }
+
+    /**
+     * Immutable lookup tables for one version of the hierarchy. Custom roles that cannot be
+     * resolved (unknown parent, cycle, level below a parent, unknown permission) are left out
+     * and reported in {@code rejected}. The maps are hash maps rather than {@code Map.copyOf}
+     * tables, whose linear probing degrades on runs of similar names such as ROLE_1, ROLE_2.
+     */
+    record Snapshot(Map<String, RoleDefinition> byName, List<RoleDefinition> ordered, Map<String, String> rejected) {
+
+        private static final Comparator<RoleDefinition> CUSTOM_ORDER =
+                Comparator.comparingInt(RoleDefinition::level).reversed().thenComparing(RoleDefinition::name);
+
+        static Snapshot build(Collection<CustomRole> customRoles) {
+            Map<String, RoleDefinition> resolved = new LinkedHashMap<>();
+            for (Role role : Role.values()) {
+                resolved.put(role.name(), RoleDefinition.of(role));
+            }
+            Map<String, CustomRole> pending = new TreeMap<>();
+            customRoles.forEach(role -> pending.put(role.getName(), role));
+            Map<String, String> rejected = new TreeMap<>();
+            for (String name : pending.keySet()) {
+                resolve(name, pending, resolved, rejected, new HashSet<>());
+            }
+
+            List<RoleDefinition> custom = new ArrayList<>();
+            for (RoleDefinition definition : resolved.values()) {
+                if (!definition.builtIn()) {
+                    custom.add(definition);
+                }
+            }
+            custom.sort(CUSTOM_ORDER);
+            List<RoleDefinition> ordered = new ArrayList<>(resolved.size());
+            for (Role role : Role.values()) {
+                ordered.add(resolved.get(role.name()));
+            }
+            ordered.addAll(custom);
+            return new Snapshot(Collections.unmodifiableMap(new HashMap<>(resolved)), List.copyOf(ordered),
+                    Collections.unmodifiableMap(rejected));
+        }
+
+        private static RoleDefinition resolve(String name, Map<String, CustomRole> pending, Map<String, RoleDefinition> resolved,
+                                              Map<String, String> rejected, Set<String> visiting) {
+            RoleDefinition done = resolved.get(name);
+            if (done != null || rejected.containsKey(name)) {
+                return done;
+            }
+            CustomRole role = pending.get(name);
+            if (role == null) {
+                return null;
+            }
+            if (!visiting.add(name)) {
+                return null;
+            }
+
+            String problem = null;
+            if (role.getLevel() < MIN_LEVEL || role.getLevel() > MAX_LEVEL) {
+                problem = "level must be between " + MIN_LEVEL + " and " + MAX_LEVEL;
+            }
+            for (String permission : role.getGrants()) {
+                if (problem == null && !Role.catalog().contains(permission)) {
+                    problem = "unknown permission " + permission;
+                }
+            }
+            PermissionSet permissions = problem == null ? PermissionSet.of(role.getGrants()) : PermissionSet.EMPTY;
+            BitSet ancestors = new BitSet();
+            for (String parentName : role.getParents()) {
+                if (problem != null) {
+                    break;
+                }
+                RoleDefinition parent = resolve(parentName, pending, resolved, rejected, visiting);
+                if (parent == null) {
+                    problem = visiting.contains(parentName) ? "inheriting from " + parentName + " forms a cycle"
+                            : pending.containsKey(parentName) ? "parent " + parentName + " is invalid"
+                            : "unknown parent " + parentName;
+                } else if (parent.level() > role.getLevel()) {
+                    problem = "level " + role.getLevel() + " is below the level " + parent.level() + " of parent " + parentName;
+                } else {
+                    permissions = permissions.union(parent.permissionSet());
+                    ancestors.set(parent.index());
+                    ancestors.or(parent.ancestors());
+                }
+            }
+            visiting.remove(name);
+            if (problem != null) {
+                rejected.put(name, problem);
+                return null;
+            }
+
+            RoleDefinition definition = new RoleDefinition(resolved.size(), name, role.getLevel(), false, role.getDescription(),
+                    role.getParents().stream().sorted().toList(), sortedGrants(role.getGrants()), permissions, ancestors);
+            resolved.put(name, definition);
+            return definition;
+        }
+
+        private static List<String> sortedGrants(Collection<String> grants) {
+            return Role.catalog().stream().filter(grants::contains).toList();
+        }
+    }
+}
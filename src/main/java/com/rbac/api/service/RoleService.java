@@ -0,0 +1,234 @@
+package com.rbac.api.service;
+
+import com.rbac.api.cluster.ClusterInvalidation;
+import com.rbac.api.dto.Dtos.RoleRequest;
+import com.rbac.api.dto.Dtos.RoleResponse;
+import com.rbac.api.entity.CustomRole;
+import com.rbac.api.entity.PermissionSet;
+import com.rbac.api.entity.Role;
+import com.rbac.api.entity.UserChange;
+import com.rbac.api.exception.Exceptions.ResourceNotFoundException;
+import com.rbac.api.exception.Exceptions.ValidationException;
+import com.rbac.api.repository.CustomRoleRepository;
+import com.rbac.api.repository.UserRepository;
+import com.rbac.api.security.TokenFences;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the role hierarchy and maintains the custom roles. Every change is validated against
+ * the whole hierarchy as it would be after the change, so it cannot leave a cycle, a dangling
+ * parent or a role ranked below one of its parents. A change that alters the permissions of a
+ * role bumps the version, and so the ETag, of everyone holding it or a role that inherits it;
+ * a change that takes permissions away also fences their tokens.
+ */
+@Service
+public class RoleService {
+
+    private static final Pattern NAME = Pattern.compile("[A-Z][A-Z0-9_]{1,49}");
+
+    private final CustomRoleRepository customRoleRepository;
+    private final RoleHierarchy roleHierarchy;
+    private final UserChangeOutbox changeOutbox;
+    private final ClusterInvalidation clusterInvalidation;
+    private final UserRepository userRepository;
+    private final TokenFences tokenFences;
+    private final UserCache userCache;
+
+    public RoleService(CustomRoleRepository customRoleRepository, RoleHierarchy roleHierarchy, UserChangeOutbox changeOutbox,
+                       ClusterInvalidation clusterInvalidation, UserRepository userRepository, TokenFences tokenFences,
+                       UserCache userCache) {
+        this.customRoleRepository = customRoleRepository;
+        this.userRepository = userRepository;
+        this.tokenFences = tokenFences;
+        this.userCache = userCache;
+        this.roleHierarchy = roleHierarchy;
+        this.changeOutbox = changeOutbox;
+        this.clusterInvalidation = clusterInvalidation;
+    }
+
+    public List<RoleResponse> getAllRoles() {
+        return roleHierarchy.roles().stream().map(RoleService::toRoleResponse).toList();
+    }
+
+    public RoleResponse getRole(String name) {
+        return roleHierarchy.find(name)
+                .map(RoleService::toRoleResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Role", "name", name));
+    }
+
+    @Transactional
+    public RoleResponse defineRole(String name, RoleRequest request) {
+        if (!NAME.matcher(name).matches()) {
+            throw new ValidationException("Role names are 2 to 50 characters of A-Z, 0-9 and _, starting with a letter");
+        }
+        if (isBuiltIn(name)) {
+            throw new ValidationException("Built-in role " + name + " cannot be redefined");
+        }
+
+        List<CustomRole> roles = customRoleRepository.findAllWithParentsAndGrants();
+        Set<String> alreadyInvalid = RoleHierarchy.Snapshot.build(roles).rejected().keySet();
+        CustomRole role = roles.stream().filter(existing -> existing.getName().equals(name)).findFirst().orElse(null);
+        if (role == null) {
+            role = new CustomRole(name);
+            roles = new ArrayList<>(roles);
+            roles.add(role);
+        }
+        LinkedHashSet<String> parents = request.getParents() != null ? new LinkedHashSet<>(request.getParents()) : new LinkedHashSet<>();
+        role.setParents(parents);
+        role.setGrants(request.getPermissions() != null ? new LinkedHashSet<>(request.getPermissions()) : new LinkedHashSet<>());
+        role.setDescription(request.getDescription());
+        role.setLevel(request.getLevel() != null ? request.getLevel() : defaultLevel(parents));
+
+        RoleHierarchy.Snapshot candidate = validate(name, roles, alreadyInvalid);
+        customRoleRepository.save(role);
+        List<String> changed = changedRoles(name, candidate);
+        fenceHolders(narrowedRoles(changed, candidate));
+        touchHolders(changed);
+        changeOutbox.roleChanged(UserChange.Type.ROLE_DEFINED, name);
+        refreshAfterCommit();
+        return toRoleResponse(candidate.byName().get(name));
+    }
+
+    @Transactional
+    public void deleteRole(String name) {
+        if (isBuiltIn(name)) {
+            throw new ValidationException("Built-in role " + name + " cannot be deleted");
+        }
+        List<CustomRole> roles = customRoleRepository.findAllWithParentsAndGrants();
+        CustomRole role = roles.stream().filter(existing -> existing.getName().equals(name)).findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Role", "name", name));
+        List<String> children = roles.stream()
+                .filter(other -> other.getParents().contains(name))
+                .map(CustomRole::getName)
+                .sorted()
+                .toList();
+        if (!children.isEmpty()) {
+            throw new ValidationException("Role " + name + " is inherited by " + String.join(", ", children));
+        }
+        long holders = userRepository.countByCustomRole(name);
+        if (holders > 0) {
+            throw new ValidationException("Role " + name + " is assigned to " + holders + " users");
+        }
+        customRoleRepository.delete(role);
+        changeOutbox.roleChanged(UserChange.Type.ROLE_DELETED, name);
+        refreshAfterCommit();
+    }
+
+    /**
+     * Fails if the changed role, or any role the change affects, no longer resolves. Roles that
+     * were already invalid (say, after concurrent changes on two instances) do not block it.
+     */
+    private static RoleHierarchy.Snapshot validate(String name, List<CustomRole> roles, Set<String> alreadyInvalid) {
+        RoleHierarchy.Snapshot candidate = RoleHierarchy.Snapshot.build(roles);
+        String reason = candidate.rejected().get(name);
+        if (reason != null) {
+            throw new ValidationException("Role " + name + " is invalid: " + reason);
+        }
+        candidate.rejected().entrySet().stream()
+                .filter(rejected -> !alreadyInvalid.contains(rejected.getKey()))
+                .min(Map.Entry.comparingByKey())
+                .ifPresent(broken -> {
+                    throw new ValidationException("This change would make role " + broken.getKey() + " invalid: " + broken.getValue());
+                });
+        return candidate;
+    }
+
+    // The changed role and the roles inheriting it that end up with other permissions than before
+    private List<String> changedRoles(String name, RoleHierarchy.Snapshot candidate) {
+        RoleDefinition changed = candidate.byName().get(name);
+        List<String> roles = new ArrayList<>();
+        for (RoleDefinition role : candidate.byName().values()) {
+            if (role.builtIn() || (role != changed && !role.includes(changed))) {
+                continue;
+            }
+            if (!role.permissionSet().equals(permissionsBefore(role.name()))) {
+                roles.add(role.name());
+            }
+        }
+        return roles;
+    }
+
+    // Of those, the roles that lost a permission they had
+    private List<String> narrowedRoles(List<String> changed, RoleHierarchy.Snapshot candidate) {
+        return changed.stream()
+                .filter(name -> !candidate.byName().get(name).permissionSet().containsAll(permissionsBefore(name)))
+                .toList();
+    }
+
+    private PermissionSet permissionsBefore(String name) {
+        return roleHierarchy.find(name).map(RoleDefinition::permissionSet).orElse(PermissionSet.EMPTY);
+    }
+
+    private void fenceHolders(List<String> customRoles) {
+        if (customRoles.isEmpty()) {
+            return;
+        }
+        List<UUID> holders = userRepository.findIdsByCustomRoleIn(customRoles);
+        if (!holders.isEmpty()) {
+            userRepository.updateTokensValidAfterByCustomRoleIn(customRoles, tokenFences.raise(holders));
+        }
+    }
+
+    // A holder's permissions are part of the user resource, so its version and cached copies must change with them
+    private void touchHolders(List<String> customRoles) {
+        if (customRoles.isEmpty()) {
+            return;
+        }
+        List<UUID> holders = userRepository.findIdsByCustomRoleIn(customRoles);
+        if (holders.isEmpty()) {
+            return;
+        }
+        userRepository.incrementVersionByCustomRoleIn(customRoles);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userCache.invalidate(holders);
+            }
+        });
+    }
+
+    // A new role ranks with its most senior parent unless a level is given
+    private int defaultLevel(Iterable<String> parents) {
+        int level = RoleHierarchy.MIN_LEVEL;
+        for (String parent : parents) {
+            level = Math.max(level, roleHierarchy.find(parent).map(RoleDefinition::level).orElse(level));
+        }
+        return level;
+    }
+
+    // Other instances are told inside the transaction; PostgreSQL delivers the notification on commit
+    private void refreshAfterCommit() {
+        clusterInvalidation.publishRolesChanged();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                roleHierarchy.refresh();
+            }
+        });
+    }
+
+    private static boolean isBuiltIn(String name) {
+        for (Role role : Role.values()) {
+            if (role.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static RoleResponse toRoleResponse(RoleDefinition role) {
+        return new RoleResponse(role.name(), role.level(), role.builtIn(), role.description(),
+                role.parents(), role.grants(), role.permissions());
+    }
+}
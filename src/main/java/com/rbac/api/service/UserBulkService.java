@@ -0,0 +1,486 @@
+package com.rbac.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rbac.api.audit.AuditAction;
+import com.rbac.api.audit.AuditLog;
+import com.rbac.api.dto.Dtos.*;
+import com.rbac.api.entity.Role;
+import com.rbac.api.entity.User;
+import com.rbac.api.entity.UserChange;
+import com.rbac.api.exception.Exceptions.ValidationException;
+import com.rbac.api.repository.RoleCountRepository;
+import com.rbac.api.repository.UserRepository;
+import com.rbac.api.security.PasswordHashingService;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming bulk import and export of users. Imports are processed in chunks: one set-based
+ * duplicate query, parallel password hashing and one batched insert transaction per chunk.
+ */
+@Service
+public class UserBulkService {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format of(MediaType mediaType) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return NDJSON;
+            }
+            if (mediaType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))) {
+                return CSV;
+            }
+            throw new ValidationException("Unsupported bulk format: " + mediaType);
+        }
+
+        public static Format of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Unsupported bulk format: " + name);
+            }
+        }
+    }
+
+    private static final List<String> IMPORT_COLUMNS = List.of("username", "password", "name", "email", "role");
+    private static final int MAX_USERNAME_LENGTH = 50;
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_EMAIL_LENGTH = 255;
+    private static final int MAX_PASSWORD_BYTES = 72;
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+");
+
+    private final UserRepository userRepository;
+    private final RoleCountRepository roleCountRepository;
+    private final UserService userService;
+    private final PasswordHashingService passwordHashing;
+    private final UserSearchIndex searchIndex;
+    private final UserStats userStats;
+    private final AuditLog auditLog;
+    private final UserChangeOutbox changeOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public UserBulkService(UserRepository userRepository,
+                           RoleCountRepository roleCountRepository,
+                           UserService userService,
+                           PasswordHashingService passwordHashing,
+                           UserSearchIndex searchIndex,
+                           UserStats userStats,
+                           AuditLog auditLog,
+                           UserChangeOutbox changeOutbox,
+                           TransactionTemplate transactionTemplate,
+                           EntityManager entityManager,
+                           ObjectMapper objectMapper,
+                           @Value("${rbac.bulk.chunk-size:500}") int chunkSize,
+                           @Value("${rbac.bulk.max-reported-errors:1000}") int maxReportedErrors) {
+        this.userRepository = userRepository;
+        this.roleCountRepository = roleCountRepository;
+        this.userService = userService;
+        this.passwordHashing = passwordHashing;
+        this.searchIndex = searchIndex;
+        this.userStats = userStats;
+        this.auditLog = auditLog;
+        this.changeOutbox = changeOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    // ==================== Import ====================
+
+    /**
+     * Imports users row by row. Without {@code mayAssignRoles} every row that asks for a role
+     * other than {@link Role#VIEWER} fails, the same as creating such a user one at a time.
+     */
+    public BulkImportResult importUsers(InputStream in, Format format, boolean mayAssignRoles) throws IOException {
+        ImportProgress progress = new ImportProgress();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        ObjectReader rowReader = objectMapper.readerFor(CreateUserRequest.class);
+
+        long lineNumber = 0;
+        Map<String, Integer> csvColumns = null;
+        if (format == Format.CSV) {
+            String header = reader.readLine();
+            lineNumber++;
+            if (header == null) {
+                return progress.result();
+            }
+            csvColumns = parseCsvHeader(header);
+        }
+
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            progress.processed++;
+            try {
+                CreateUserRequest request = format == Format.CSV
+                        ? toCreateRequest(parseCsvLine(line), csvColumns)
+                        : rowReader.readValue(line);
+                chunk.add(new ImportRow(lineNumber, request));
+            } catch (JsonProcessingException e) {
+                progress.fail(lineNumber, null, "Malformed row");
+            } catch (IllegalArgumentException e) {
+                progress.fail(lineNumber, null, "Malformed row: " + e.getMessage());
+            }
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, progress, mayAssignRoles);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, progress, mayAssignRoles);
+        }
+        auditLog.record(AuditAction.USERS_IMPORTED, null, null,
+                "processed=" + progress.processed + ",created=" + progress.created + ",failed=" + progress.failed);
+        return progress.result();
+    }
+
+    private void importChunk(List<ImportRow> rows, ImportProgress progress, boolean mayAssignRoles) {
+        List<ImportRow> candidates = new ArrayList<>(rows.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportRow row : rows) {
+            String problem = validate(row.request());
+            if (problem == null && !mayAssignRoles && row.request().getRole() != null && row.request().getRole() != Role.VIEWER) {
+                problem = "Assigning role " + row.request().getRole() + " requires settings.manage";
+            }
+            if (problem == null && !usernames.add(row.request().getUsername())) {
+                problem = "Duplicate username in import";
+            }
+            if (problem == null && !emails.add(row.request().getEmail())) {
+                problem = "Duplicate email in import";
+            }
+            if (problem != null) {
+                progress.fail(row.line(), row.request().getUsername(), problem);
+            } else {
+                candidates.add(row);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<String> existingUsernames = new HashSet<>();
+        Set<String> existingEmails = new HashSet<>();
+        for (Object[] existing : userRepository.findExistingUsernamesAndEmails(usernames, emails)) {
+            existingUsernames.add((String) existing[0]);
+            existingEmails.add((String) existing[1]);
+        }
+
+        List<ImportRow> accepted = new ArrayList<>(candidates.size());
+        for (ImportRow row : candidates) {
+            if (existingUsernames.contains(row.request().getUsername())) {
+                progress.fail(row.line(), row.request().getUsername(), "Username already exists");
+            } else if (existingEmails.contains(row.request().getEmail())) {
+                progress.fail(row.line(), row.request().getUsername(), "Email already exists");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<String> hashes = passwordHashing.hashAll(accepted.stream().map(row -> row.request().getPassword()).toList());
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            users.add(toUser(accepted.get(i).request(), hashes.get(i)));
+        }
+
+        try {
+            insert(users);
+        } catch (DataAccessException e) {
+            // A concurrent request took a username or email after the duplicate check, or a row
+            // broke a constraint the checks above do not cover. Retry row by row so the rest of
+            // the chunk still lands and each failure gets its real cause.
+            users = insertOneByOne(accepted, hashes, progress);
+        }
+        progress.created += users.size();
+        users.forEach(searchIndex::index);
+        // The rows have committed, so the events can go straight to the buffer
+        for (User user : users) {
+            auditLog.record(AuditAction.USER_CREATED, user.getId(), user.getUsername(), "role=" + user.getRole() + ",imported");
+        }
+    }
+
+    private void insert(List<User> users) {
+        long administrators = users.stream().filter(user -> user.getRole() == Role.ADMINISTRATOR).count();
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.saveAll(users);
+            if (administrators > 0) {
+                roleCountRepository.add(Role.ADMINISTRATOR, administrators);
+            }
+            // Flushed through the repository so constraint failures arrive as DataAccessException
+            userRepository.flush();
+            changeOutbox.usersChanged(UserChange.Type.USER_CREATED, users);
+            // Inside the transaction, so the whole chunk announces one stats change
+            users.forEach(userStats::recordCreated);
+            entityManager.clear();
+        });
+    }
+
+    private List<User> insertOneByOne(List<ImportRow> rows, List<String> hashes, ImportProgress progress) {
+        List<User> inserted = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            CreateUserRequest request = rows.get(i).request();
+            // The rolled-back entities keep the ids they were given, so build fresh ones
+            User user = toUser(request, hashes.get(i));
+            try {
+                insert(List.of(user));
+                inserted.add(user);
+            } catch (DataAccessException e) {
+                progress.fail(rows.get(i).line(), request.getUsername(), describeFailure(request, e));
+            }
+        }
+        return inserted;
+    }
+
+    private String describeFailure(CreateUserRequest request, DataAccessException e) {
+        if (userRepository.existsByUsername(request.getUsername())) {
+            return "Username already exists";
+        }
+        if (userRepository.existsByEmail(request.getEmail())) {
+            return "Email already exists";
+        }
+        String cause = String.valueOf(e.getMostSpecificCause().getMessage());
+        int lineBreak = cause.indexOf('\n');
+        return "Rejected by the database: " + (lineBreak < 0 ? cause : cause.substring(0, lineBreak));
+    }
+
+    private static User toUser(CreateUserRequest request, String passwordHash) {
+        return new User(request.getUsername(), passwordHash, request.getName(), request.getEmail(),
+                request.getRole() != null ? request.getRole() : Role.VIEWER);
+    }
+
+    // Mirrors the column sizes, so a bad row fails on its own instead of aborting its chunk
+    private static String validate(CreateUserRequest request) {
+        if (isBlank(request.getUsername())) {
+            return "username is required";
+        }
+        if (isBlank(request.getPassword())) {
+            return "password is required";
+        }
+        if (isBlank(request.getName())) {
+            return "name is required";
+        }
+        if (isBlank(request.getEmail())) {
+            return "email is required";
+        }
+        if (request.getUsername().length() > MAX_USERNAME_LENGTH) {
+            return "username must be at most " + MAX_USERNAME_LENGTH + " characters";
+        }
+        if (request.getName().length() > MAX_NAME_LENGTH) {
+            return "name must be at most " + MAX_NAME_LENGTH + " characters";
+        }
+        if (request.getEmail().length() > MAX_EMAIL_LENGTH) {
+            return "email must be at most " + MAX_EMAIL_LENGTH + " characters";
+        }
+        if (!EMAIL.matcher(request.getEmail()).matches()) {
+            return "email is not a valid address";
+        }
+        // BCrypt only looks at the first 72 bytes; longer passwords would be silently truncated
+        if (request.getPassword().getBytes(StandardCharsets.UTF_8).length > MAX_PASSWORD_BYTES) {
+            return "password must be at most " + MAX_PASSWORD_BYTES + " bytes";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static Map<String, Integer> parseCsvHeader(String header) {
+        List<String> names = parseCsvLine(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : IMPORT_COLUMNS.subList(0, 4)) {
+            if (!columns.containsKey(required)) {
+                throw new ValidationException("CSV header must contain " + String.join(",", IMPORT_COLUMNS));
+            }
+        }
+        return columns;
+    }
+
+    private static CreateUserRequest toCreateRequest(List<String> fields, Map<String, Integer> columns) {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername(field(fields, columns, "username"));
+        request.setPassword(field(fields, columns, "password"));
+        request.setName(field(fields, columns, "name"));
+        request.setEmail(field(fields, columns, "email"));
+        String role = field(fields, columns, "role");
+        if (!isBlank(role)) {
+            try {
+                request.setRole(Role.valueOf(role.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown role " + role.trim());
+            }
+        }
+        return request;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null && index < fields.size() ? fields.get(index) : null;
+    }
+
+    // Single-line RFC 4180 records: quoted fields may contain commas and doubled quotes
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record ImportRow(long line, CreateUserRequest request) {}
+
+    private class ImportProgress {
+        int processed;
+        int created;
+        int failed;
+        final List<BulkRowError> errors = new ArrayList<>();
+
+        void fail(long line, String username, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new BulkRowError(line, username, message));
+            }
+        }
+
+        BulkImportResult result() {
+            return new BulkImportResult(processed, created, failed, errors);
+        }
+    }
+
+    // ==================== Export ====================
+
+    public void exportUsers(OutputStream out, Format format) throws IOException {
+        if (format == Format.NDJSON) {
+            exportNdjson(out);
+        } else {
+            exportCsv(out);
+        }
+    }
+
+    private void exportNdjson(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(UserResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // Leaves the response open on failure, so the container aborts it instead of ending it cleanly
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            userService.streamAllUsers(user -> {
+                try {
+                    writer.writeValue(generator, user);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeRaw('\n');
+        }
+    }
+
+    private void exportCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,username,name,email,role,active,createdAt,lastLogin\n");
+        userService.streamAllUsers(user -> {
+            try {
+                writer.write(String.valueOf(user.getId()));
+                writer.write(',');
+                writer.write(csv(user.getUsername()));
+                writer.write(',');
+                writer.write(csv(user.getName()));
+                writer.write(',');
+                writer.write(csv(user.getEmail()));
+                writer.write(',');
+                writer.write(user.getRole().name());
+                writer.write(',');
+                writer.write(Boolean.toString(user.isActive()));
+                writer.write(',');
+                writer.write(user.getCreatedAt() != null ? user.getCreatedAt().toString() : "");
+                writer.write(',');
+                writer.write(user.getLastLogin() != null ? user.getLastLogin().toString() : "");
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,202 @@
+package com.rbac.api.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rbac.api.cluster.ClusterInvalidation;
+import com.rbac.api.entity.User;
+import com.rbac.api.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of users keyed by id, with a secondary username to id index. Entries are
+ * bounded by size (W-TinyLFU) and age; mutations evict them again after the transaction ends,
+ * so a concurrent load that read the old row cannot survive the commit. Other instances are
+ * told through {@link ClusterInvalidation} and evict on commit; a node that lost its listener
+ * connection drops everything once it reconnects.
+ * <p>
+ * Values are held as futures and loaded on the calling thread outside any map lock, so a
+ * virtual thread blocked on JDBC during a miss never pins its carrier.
+ */
+@Component
+public class UserCache {
+
+    // Keeps the IN list well below the 32767 bind parameters a PostgreSQL statement allows
+    private static final int MAX_IDS_PER_QUERY = 10_000;
+
+    private final UserRepository userRepository;
+    private final ClusterInvalidation clusterInvalidation;
+    private final AsyncCache<UUID, CachedUser> usersById;
+    private final AsyncCache<String, UUID> idsByUsername;
+
+    public UserCache(UserRepository userRepository,
+                     ClusterInvalidation clusterInvalidation,
+                     MeterRegistry meterRegistry,
+                     @Value("${rbac.cache.users.max-size:10000}") long maxSize,
+                     @Value("${rbac.cache.users.ttl:PT5M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.clusterInvalidation = clusterInvalidation;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.idsByUsername = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByUsername, "users.byUsername");
+        clusterInvalidation.onUsersChanged(this::evictRemote);
+        clusterInvalidation.onResync(this::invalidateAll);
+    }
+
+    public Optional<CachedUser> findById(UUID id) {
+        return Optional.ofNullable(getOrLoad(usersById, id, key -> userRepository.findById(key).map(CachedUser::of).orElse(null)));
+    }
+
+    /**
+     * Looks up many users at once: hits come from the cache and all misses are loaded with one
+     * query (per {@value #MAX_IDS_PER_QUERY} ids), then cached like single loads. Users that do
+     * not exist are absent from the result.
+     */
+    public Map<UUID, CachedUser> findAllById(Collection<UUID> ids) {
+        Map<UUID, CompletableFuture<CachedUser>> futures = new HashMap<>(ids.size() * 2);
+        Map<UUID, CompletableFuture<CachedUser>> loading = new HashMap<>();
+        for (UUID id : ids) {
+            CompletableFuture<CachedUser> future = usersById.getIfPresent(id);
+            if (future == null) {
+                CompletableFuture<CachedUser> own = new CompletableFuture<>();
+                future = usersById.asMap().putIfAbsent(id, own);
+                if (future == null) {
+                    future = own;
+                    loading.put(id, own);
+                }
+            }
+            futures.put(id, future);
+        }
+        if (!loading.isEmpty()) {
+            load(loading);
+        }
+        Map<UUID, CachedUser> users = new HashMap<>(futures.size() * 2);
+        futures.forEach((id, future) -> {
+            CachedUser user = future.join();
+            if (user != null) {
+                users.put(id, user);
+            }
+        });
+        return users;
+    }
+
+    public Optional<CachedUser> findByUsername(String username) {
+        UUID id = getOrLoad(idsByUsername, username, key -> userRepository.findIdByUsername(key).orElse(null));
+        if (id == null) {
+            return Optional.empty();
+        }
+        Optional<CachedUser> user = findById(id);
+        if (user.isEmpty() || !user.get().username().equals(username)) {
+            idsByUsername.synchronous().invalidate(username);
+            return Optional.empty();
+        }
+        return user;
+    }
+
+    public void invalidate(UUID id, String username) {
+        evict(id, username);
+        clusterInvalidation.publishUsers(List.of(id));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id, username);
+                }
+            });
+        }
+    }
+
+    /**
+     * Evicts users whose changes are already committed, telling the other instances in as few
+     * notifications as the ids fit into.
+     */
+    public void invalidate(Collection<UUID> ids) {
+        ids.forEach(id -> evict(id, null));
+        clusterInvalidation.publishUsers(ids);
+    }
+
+    public void invalidateAll() {
+        usersById.synchronous().invalidateAll();
+        idsByUsername.synchronous().invalidateAll();
+    }
+
+    private void evict(UUID id, String username) {
+        usersById.synchronous().invalidate(id);
+        if (username != null) {
+            idsByUsername.synchronous().invalidate(username);
+        }
+    }
+
+    // Another instance only sends the id; the username entry is found through the cached user
+    private void evictRemote(UUID id) {
+        CompletableFuture<CachedUser> cached = usersById.getIfPresent(id);
+        CachedUser user = cached != null && cached.isDone() && !cached.isCompletedExceptionally() ? cached.join() : null;
+        evict(id, user != null ? user.username() : null);
+    }
+
+    private void load(Map<UUID, CompletableFuture<CachedUser>> loading) {
+        List<UUID> ids = new ArrayList<>(loading.keySet());
+        try {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                for (User user : userRepository.findAllById(ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size())))) {
+                    loading.get(user.getId()).complete(CachedUser.of(user));
+                }
+            }
+            // Whatever the query did not return does not exist
+            loading.values().forEach(future -> future.complete(null));
+        } catch (RuntimeException e) {
+            loading.forEach((id, future) -> {
+                if (future.completeExceptionally(e)) {
+                    usersById.asMap().remove(id, future);
+                }
+            });
+            throw e;
+        }
+    }
+
+    // An invalidation that races with a load removes the in-flight future, so its result is
+    // handed to the waiting callers but never becomes visible to later lookups.
+    private static <K, V> V getOrLoad(AsyncCache<K, V> cache, K key, Function<K, V> loader) {
+        CompletableFuture<V> future = cache.getIfPresent(key);
+        if (future == null) {
+            CompletableFuture<V> loading = new CompletableFuture<>();
+            future = cache.asMap().putIfAbsent(key, loading);
+            if (future == null) {
+                try {
+                    V value = loader.apply(key);
+                    loading.complete(value);
+                    return value;
+                } catch (RuntimeException e) {
+                    loading.completeExceptionally(e);
+                    cache.asMap().remove(key, loading);
+                    throw e;
+                }
+            }
+        }
+        return future.join();
+    }
+}
@@ -0,0 +1,71 @@
+package com.rbac.api.service;
+
+import com.rbac.api.entity.User;
+import com.rbac.api.entity.UserChange;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes {@code user_changes} rows. Must be called inside the transaction that makes the change:
+ * the row commits or rolls back with it, so the change feed never announces a change that did not
+ * happen. A transaction that commits more than {@code rbac.changes.gap-timeout} after writing its
+ * row can still be passed over by the relay; subscribers are then sent {@code reset} rather than
+ * the change (see {@link UserChangeRelay}). Rows go through the transaction's JDBC connection,
+ * which allows batching where JPA identity inserts would not.
+ */
+@Component
+public class UserChangeOutbox {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO user_changes (occurred_at, type, user_id, username, role, active, version) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserChangeRelay relay;
+
+    public UserChangeOutbox(JdbcTemplate jdbcTemplate, UserChangeRelay relay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.relay = relay;
+    }
+
+    public void userChanged(UserChange.Type type, User user) {
+        usersChanged(type, List.of(user));
+    }
+
+    public void usersChanged(UserChange.Type type, Collection<User> users) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(INSERT_SQL, users, users.size(), (statement, user) -> {
+            statement.setObject(1, now);
+            statement.setString(2, type.name());
+            statement.setObject(3, user.getId());
+            statement.setString(4, user.getUsername());
+            statement.setString(5, user.getRole().name());
+            statement.setBoolean(6, user.isActive());
+            statement.setLong(7, user.getVersion());
+        });
+        wakeRelayAfterCommit();
+    }
+
+    public void roleChanged(UserChange.Type type, String roleName) {
+        jdbcTemplate.update(INSERT_SQL, OffsetDateTime.now(ZoneOffset.UTC), type.name(), null, null, roleName, null, null);
+        wakeRelayAfterCommit();
+    }
+
+    // The relay polls anyway; this only saves local changes the wait for the next poll
+    private void wakeRelayAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relay.wakeUp();
+                }
+            });
+        }
+    }
+}
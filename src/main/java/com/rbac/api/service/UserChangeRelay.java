@@ -0,0 +1,444 @@
+package com.rbac.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbac.api.dto.Dtos.UserChangeEvent;
+import com.rbac.api.entity.UserChange;
+import com.rbac.api.repository.UserChangeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Relays committed {@code user_changes} rows to Server-Sent Events subscribers. A single thread
+ * polls the outbox in id order, keeps the most recent events in memory and moves every
+ * subscriber's offset forward: from memory when the subscriber is close to the head, from the
+ * outbox in batches when it resumes from further back. Each node relays from the shared outbox,
+ * so a subscriber sees every change whichever node it connects to.
+ The relay thread also purges the outbox every hour,
+ * because it owns the offsets a purge moves.
+ * <p>
+ * Ids are allocated before commit, so a row can become visible after a row with a higher id.
+ * The relay therefore stops at a hole in the ids until the row after it is older than
+ * {@code rbac.changes.gap-timeout}; only then is the hole taken to be a rolled-back insert and
+ * skipped ({@code rbac.changes.gap.skipped}). A transaction that commits even later than that has
+ * been missed: skipped ids are looked up again for {@code rbac.changes.late-commit-window}, and a
+ * late row found there ({@code rbac.changes.late}) sends {@code reset} to every subscriber that
+ * will not receive it.
+ * <p>
+ * Each subscriber has a bounded queue drained by its own virtual thread, so a client that stops
+ * reading only fills its own queue. The relay prepares nothing more for a full queue, and once it
+ * has been full for {@code rbac.changes.slow-consumer-timeout} the subscriber is sent
+ * {@code reset} and disconnected ({@code rbac.changes.subscribers.dropped}).
+ */
+@Component
+public class UserChangeRelay implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangeRelay.class);
+
+    static final String EVENT_CHANGE = "user-change";
+    static final String EVENT_RESET = "reset";
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final int MAX_SKIPPED_RANGES = 1000;
+    // Tells a sender to complete its stream; compared by identity
+    private static final Set<SseEmitter.DataWithMediaType> END = Set.of();
+
+    private final UserChangeRepository userChangeRepository;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int retainedInMemory;
+    private final long pollIntervalNanos;
+    private final long heartbeatIntervalNanos;
+    private final Duration gapTimeout;
+    private final Duration retention;
+    private final int subscriberQueue;
+    private final long slowConsumerTimeoutNanos;
+    private final long lateCommitWindowNanos;
+    private final Counter gapsSkipped;
+    private final Counter lateCommits;
+    private final Counter subscribersDropped;
+    private final ConcurrentLinkedQueue<Subscriber> subscribers = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<RelayedChange> recent = new ArrayDeque<>();
+    private volatile Thread relay;
+    private volatile boolean running;
+
+    // Only touched by the relay thread
+    private final ArrayDeque<SkippedRange> skipped = new ArrayDeque<>();
+    private long head = -1;
+    private long recentFloor;
+    private long outboxFloor;
+
+    public UserChangeRelay(UserChangeRepository userChangeRepository, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           @Value("${rbac.changes.batch-size:500}") int batchSize,
+                           @Value("${rbac.changes.retained-in-memory:10000}") int retainedInMemory,
+                           @Value("${rbac.changes.poll-interval:PT0.5S}") Duration pollInterval,
+                           @Value("${rbac.changes.heartbeat-interval:PT15S}") Duration heartbeatInterval,
+                           @Value("${rbac.changes.gap-timeout:PT10S}") Duration gapTimeout,
+                           @Value("${rbac.changes.retention:P7D}") Duration retention,
+                           @Value("${rbac.changes.subscriber-queue:64}") int subscriberQueue,
+                           @Value("${rbac.changes.slow-consumer-timeout:PT30S}") Duration slowConsumerTimeout,
+                           @Value("${rbac.changes.late-commit-window:PT5M}") Duration lateCommitWindow) {
+        this.userChangeRepository = userChangeRepository;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.retainedInMemory = retainedInMemory;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.heartbeatIntervalNanos = heartbeatInterval.toNanos();
+        this.gapTimeout = gapTimeout;
+        this.retention = retention;
+        // Room for a reset and the end of the stream when a subscriber is dropped
+        this.subscriberQueue = Math.max(2, subscriberQueue);
+        this.slowConsumerTimeoutNanos = slowConsumerTimeout.toNanos();
+        this.lateCommitWindowNanos = lateCommitWindow.toNanos();
+        this.gapsSkipped = Counter.builder("rbac.changes.gap.skipped")
+                .description("Outbox ids given up on as rolled back after the gap timeout")
+                .register(meterRegistry);
+        this.lateCommits = Counter.builder("rbac.changes.late")
+                .description("Outbox rows that committed after their id had been skipped")
+                .register(meterRegistry);
+        this.subscribersDropped = Counter.builder("rbac.changes.subscribers.dropped")
+                .description("Change feed subscribers disconnected for not reading")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Streams changes after {@code after} to {@code emitter}, or only new changes when
+     * {@code after} is null. An offset that has already been purged from the outbox gets a
+     * {@code reset} event, after which the subscriber continues from the head.
+     */
+    public void subscribe(SseEmitter emitter, Long after) {
+        Subscriber subscriber = new Subscriber(emitter, after != null ? after : -1, subscriberQueue);
+        emitter.onCompletion(() -> subscriber.closed = true);
+        emitter.onTimeout(() -> subscriber.closed = true);
+        emitter.onError(error -> subscriber.closed = true);
+        Thread.ofVirtual().name("user-change-sender").start(() -> send(subscriber));
+        subscribers.add(subscriber);
+        wakeUp();
+    }
+
+    public void wakeUp() {
+        LockSupport.unpark(relay);
+    }
+
+    private void run() {
+        long nextHeartbeat = System.nanoTime() + heartbeatIntervalNanos;
+        long nextPurge = System.nanoTime();
+        while (running) {
+            boolean busy = false;
+            try {
+                if (head < 0) {
+                    placeHead();
+                }
+                if (System.nanoTime() - nextPurge >= 0) {
+                    purge();
+                    nextPurge = System.nanoTime() + PURGE_INTERVAL_NANOS;
+                }
+                busy = poll();
+                checkSkipped();
+                long now = System.nanoTime();
+                boolean heartbeat = now - nextHeartbeat >= 0;
+                if (heartbeat) {
+                    nextHeartbeat = now + heartbeatIntervalNanos;
+                }
+                for (Iterator<Subscriber> it = subscribers.iterator(); it.hasNext(); ) {
+                    Subscriber subscriber = it.next();
+                    if (subscriber.closed) {
+                        end(subscriber);
+                        it.remove();
+                    } else if (!deliver(subscriber, heartbeat, now)) {
+                        it.remove();
+                    } else if (subscriber.cursor < head && !subscriber.backedUp) {
+                        busy = true;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to relay user changes, will retry", e);
+            }
+            if (!busy) {
+                LockSupport.parkNanos(this, pollIntervalNanos);
+            }
+        }
+        subscribers.forEach(UserChangeRelay::end);
+    }
+
+    /**
+     * Places the head behind the rows written within the gap timeout. A lower id than the newest
+     * row may still be in flight, and starting from the newest row would pass over it for good;
+     * from here {@link #poll()} waits for such holes or skips them like any other.
+     */
+    private void placeHead() {
+        long settled = userChangeRepository.findMaxIdOccurredBefore(Instant.now().minus(gapTimeout));
+        head = settled > 0 ? settled : Math.max(userChangeRepository.findMinId() - 1, 0);
+        recentFloor = head;
+        updateOutboxFloor();
+    }
+
+    /**
+     * Reads the next committed rows into the recent window. True when a full batch was read and
+     * more may be waiting.
+     */
+    private boolean poll() {
+        List<UserChange> rows = userChangeRepository.findRange(head, Long.MAX_VALUE, Limit.of(batchSize));
+        Instant settled = Instant.now().minus(gapTimeout);
+        for (UserChange row : rows) {
+            if (row.getId() != head + 1) {
+                if (row.getOccurredAt().isAfter(settled)) {
+                    // A lower id may still be in flight; wait for it to commit or to time out
+                    return false;
+                }
+                skip(head + 1, row.getId() - 1);
+            }
+            recent.addLast(new RelayedChange(row.getId(), toJson(row)));
+            head = row.getId();
+            if (recent.size() > retainedInMemory) {
+                recentFloor = recent.removeFirst().id();
+            }
+        }
+        return rows.size() == batchSize;
+    }
+
+    private void skip(long from, long through) {
+        gapsSkipped.increment(through - from + 1);
+        if (skipped.size() == MAX_SKIPPED_RANGES) {
+            skipped.removeFirst();
+        }
+        skipped.addLast(new SkippedRange(from, through, System.nanoTime()));
+    }
+
+    /**
+     * Looks for rows that committed into ids the relay has already skipped. Subscribers that have
+     * passed such a row, or will be served from the recent window that lacks it, are sent
+     * {@code reset}; the others still read it from the outbox.
+     */
+    private void checkSkipped() {
+        long now = System.nanoTime();
+        long lowestLate = Long.MAX_VALUE;
+        for (Iterator<SkippedRange> it = skipped.iterator(); it.hasNext(); ) {
+            SkippedRange range = it.next();
+            if (now - range.skippedAt >= lateCommitWindowNanos) {
+                it.remove();
+                continue;
+            }
+            List<UserChange> late = userChangeRepository.findRange(range.from - 1, range.through, Limit.of(batchSize));
+            if (late.isEmpty()) {
+                continue;
+            }
+            lateCommits.increment(late.size());
+            lowestLate = Math.min(lowestLate, late.get(0).getId());
+            range.from = late.get(late.size() - 1).getId() + 1;
+            if (range.from > range.through) {
+                it.remove();
+            }
+        }
+        if (lowestLate == Long.MAX_VALUE) {
+            return;
+        }
+        log.warn("User change {} committed after the relay had skipped it; resetting the subscribers that missed it", lowestLate);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.cursor >= 0 && (subscriber.cursor >= lowestLate || lowestLate > recentFloor)) {
+                if (subscriber.outgoing.remainingCapacity() == 0) {
+                    drop(subscriber);
+                } else {
+                    subscriber.outgoing.add(reset());
+                    subscriber.cursor = head;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues what the subscriber has not seen yet, at most one batch from the outbox per call.
+     * Nothing is prepared while the queue is full. False when the subscriber has been dropped.
+     */
+    private boolean deliver(Subscriber subscriber, boolean heartbeat, long now) {
+        if (subscriber.outgoing.remainingCapacity() == 0) {
+            if (!subscriber.backedUp) {
+                subscriber.backedUp = true;
+                subscriber.backedUpSince = now;
+            } else if (now - subscriber.backedUpSince >= slowConsumerTimeoutNanos) {
+                drop(subscriber);
+                return false;
+            }
+            return true;
+        }
+        subscriber.backedUp = false;
+        Set<SseEmitter.DataWithMediaType> message = new LinkedHashSet<>();
+        if (subscriber.cursor < 0) {
+            subscriber.cursor = head;
+        } else if (subscriber.cursor < head) {
+            if (subscriber.cursor >= recentFloor) {
+                List<RelayedChange> missed = new ArrayList<>();
+                for (Iterator<RelayedChange> it = recent.descendingIterator(); it.hasNext(); ) {
+                    RelayedChange change = it.next();
+                    if (change.id() <= subscriber.cursor) {
+                        break;
+                    }
+                    missed.add(change);
+                }
+                Collections.reverse(missed);
+                missed.forEach(change -> message.addAll(event(change).build()));
+                subscriber.cursor = head;
+            } else if (subscriber.cursor < outboxFloor) {
+                message.addAll(reset());
+                subscriber.cursor = head;
+            } else {
+                List<UserChange> rows = userChangeRepository.findRange(subscriber.cursor, recentFloor, Limit.of(batchSize));
+                for (UserChange row : rows) {
+                    message.addAll(event(new RelayedChange(row.getId(), toJson(row))).build());
+                }
+                subscriber.cursor = rows.size() < batchSize ? recentFloor : rows.get(rows.size() - 1).getId();
+            }
+        }
+        if (message.isEmpty() && heartbeat && subscriber.outgoing.isEmpty()) {
+            message.addAll(SseEmitter.event().comment("keep-alive").build());
+        }
+        if (!message.isEmpty()) {
+            // Only the relay thread adds, and the queue had room
+            subscriber.outgoing.add(message);
+        }
+        return true;
+    }
+
+    private void drop(Subscriber subscriber) {
+        subscribersDropped.increment();
+        log.info("Dropping a change feed subscriber that is not keeping up");
+        subscriber.outgoing.clear();
+        subscriber.outgoing.add(reset());
+        subscriber.outgoing.add(END);
+    }
+
+    private static void end(Subscriber subscriber) {
+        subscriber.outgoing.clear();
+        subscriber.outgoing.add(END);
+    }
+
+    // Runs on the subscriber's own virtual thread, so a blocked write holds up nobody else
+    private static void send(Subscriber subscriber) {
+        try {
+            Set<SseEmitter.DataWithMediaType> message;
+            while ((message = subscriber.outgoing.take()) != END) {
+                subscriber.emitter.send(message);
+            }
+            subscriber.emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            subscriber.emitter.completeWithError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscriber.closed = true;
+        }
+    }
+
+    private Set<SseEmitter.DataWithMediaType> reset() {
+        return SseEmitter.event().id(String.valueOf(head)).name(EVENT_RESET).data("{}").build();
+    }
+
+    private void purge() {
+        int deleted = userChangeRepository.deleteOlderThan(Instant.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Purged {} user changes older than {}", deleted, retention);
+        }
+        updateOutboxFloor();
+    }
+
+    // Offsets at or below the floor may have been purged; an empty outbox has been purged up to the head
+    private void updateOutboxFloor() {
+        long minId = userChangeRepository.findMinId();
+        outboxFloor = minId == 0 ? head : minId - 1;
+    }
+
+    private static SseEmitter.SseEventBuilder event(RelayedChange change) {
+        return SseEmitter.event().id(String.valueOf(change.id())).name(EVENT_CHANGE).data(change.json());
+    }
+
+    private String toJson(UserChange row) {
+        UserChangeEvent event = new UserChangeEvent(row.getId(), row.getOccurredAt(), row.getType().name(), row.getUserId(),
+                row.getUsername(), row.getRole(), row.getActive(), row.getVersion());
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::run, "user-change-relay");
+        thread.setDaemon(true);
+        relay = thread;
+        thread.start();
+    }
+
+    // Ends every stream before the web server stops, so a graceful shutdown does not wait on them
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = relay;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private record RelayedChange(long id, String json) {}
+
+    private static final class SkippedRange {
+        // Lowest id not yet found committed
+        long from;
+        final long through;
+        final long skippedAt;
+
+        SkippedRange(long from, long through, long skippedAt) {
+            this.from = from;
+            this.through = through;
+            this.skippedAt = skippedAt;
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<Set<SseEmitter.DataWithMediaType>> outgoing;
+        // Last id queued, or -1 until the relay places it at the head; relay thread only
+        long cursor;
+        boolean backedUp;
+        long backedUpSince;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, long cursor, int queueSize) {
+            this.emitter = emitter;
+            this.outgoing = new ArrayBlockingQueue<>(queueSize);
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.rbac.api.service;
+
+import com.rbac.api.entity.User;
+import com.rbac.api.repository.UserSummary;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ranked user search over username and name. Results are ordered exact username match first,
+ * then prefix matches, then other substring matches.
+ */
+public interface UserSearchIndex {
+
+    List<UserSummary> search(String query, int limit);
+
+    default void index(User user) {}
+
+    default void remove(UUID id) {}
+}
@@ -1,125 +1,290 @@
 package com.rbac.api.service;
 
+import com.rbac.api.audit.AuditAction;
+import com.rbac.api.audit.AuditLog;
 import com.rbac.api.dto.Dtos.*;
+import com.rbac.api.entity.PermissionSet;
 import com.rbac.api.entity.Role;
 import com.rbac.api.entity.User;
+import com.rbac.api.entity.UserChange;
 import com.rbac.api.exception.Exceptions.*;
+import com.rbac.api.repository.RoleCountRepository;
 import com.rbac.api.repository.UserRepository;
+import com.rbac.api.repository.UserSummary;
+import com.rbac.api.repository.UserView;
+import com.rbac.api.security.PasswordHashingService;
+import com.rbac.api.security.TokenFences;
+import com.rbac.api.security.TokenService;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+// One timer per public method, tagged with the method name; histogram buckets are enabled
+// under management.metrics.distribution.percentiles-histogram.rbac.user.service
 @Service
+@Timed("rbac.user.service")
 public class UserService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    public static final int MAX_SEARCH_LIMIT = 200;
+    private static final int STREAM_PAGE_SIZE = 1000;
+
     private final UserRepository userRepository;
+    private final RoleCountRepository roleCountRepository;
+    private final TokenService tokenService;
+    private final PasswordHashingService passwordHashing;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final UserCache userCache;
+    private final UserSearchIndex searchIndex;
+    private final UserStats userStats;
+    private final LoginMetrics loginMetrics;
+    private final AuditLog auditLog;
+    private final UserChangeOutbox changeOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final RoleHierarchy roleHierarchy;
+    private final TokenFences tokenFences;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, RoleCountRepository roleCountRepository, TokenService tokenService, PasswordHashingService passwordHashing,
+                       LastLoginRecorder lastLoginRecorder, UserCache userCache, UserSearchIndex searchIndex,
+                       UserStats userStats, LoginMetrics loginMetrics, AuditLog auditLog,
+                       UserChangeOutbox changeOutbox, TransactionTemplate transactionTemplate, RoleHierarchy roleHierarchy,
+                       TokenFences tokenFences) {
         this.userRepository = userRepository;
+        this.roleCountRepository = roleCountRepository;
+        this.tokenService = tokenService;
+        this.passwordHashing = passwordHashing;
+        this.lastLoginRecorder = lastLoginRecorder;
+        this.userCache = userCache;
+        this.searchIndex = searchIndex;
+        this.userStats = userStats;
+        this.loginMetrics = loginMetrics;
+        this.auditLog = auditLog;
+        this.changeOutbox = changeOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.roleHierarchy = roleHierarchy;
+        this.tokenFences = tokenFences;
     }
 
-    @Transactional
+    // Not @Transactional: the user comes from the cache or a single read-only lookup, and no
+    // connection is held while the password is verified on the hashing pool
     public LoginResponse login(LoginRequest request) {
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new AuthenticationException("Invalid username or password"));
+        CachedUser user = userCache.findByUsername(request.getUsername()).orElse(null);
+        if (user == null) {
+            loginFailed(LoginMetrics.Failure.UNKNOWN_USER, null, request.getUsername());
+            throw new AuthenticationException("Invalid username or password");
+        }
 
-        if (!user.getPassword().equals(request.getPassword())) {
+        boolean matches;
+        try {
+            matches = passwordHashing.matches(request.getPassword(), user.password());
+        } catch (ServiceUnavailableException e) {
+            loginFailed(LoginMetrics.Failure.UNAVAILABLE, user.id(), user.username());
+            throw e;
+        }
+        if (!matches) {
+            loginFailed(LoginMetrics.Failure.BAD_PASSWORD, user.id(), user.username());
             throw new AuthenticationException("Invalid username or password");
         }
 
-        if (!user.isActive()) {
+        if (!user.active()) {
+            loginFailed(LoginMetrics.Failure.DEACTIVATED, user.id(), user.username());
             throw new AuthenticationException("Account is deactivated");
         }
 
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+        if (passwordHashing.needsRehash(user.password())) {
+            userRepository.updatePassword(user.id(), passwordHashing.hash(request.getPassword()));
+            userCache.invalidate(user.id(), user.username());
+        }
+
+        lastLoginRecorder.record(user.id(), LocalDateTime.now());
 
         LoginResponse response = new LoginResponse();
-        response.setId(user.getId());
-        response.setUsername(user.getUsername());
-        response.setName(user.getName());
-        response.setEmail(user.getEmail());
-        response.setRole(user.getRole());
-        response.setPermissions(user.getRole().getPermissions());
+        response.setId(user.id());
+        response.setUsername(user.username());
+        response.setName(user.name());
+        response.setEmail(user.email());
+        response.setRole(user.role());
+        PermissionSet permissions = roleHierarchy.permissions(user.role(), user.customRole());
+        response.setPermissions(permissions.names());
+        response.setAccessToken(tokenService.issue(user.id(), user.role(), permissions));
+        response.setTokenType("Bearer");
+        response.setExpiresIn(tokenService.getTtl().toSeconds());
         response.setMessage("Login successful");
+        loginMetrics.succeeded();
+        auditLog.record(AuditAction.LOGIN_SUCCEEDED, user.id(), user.username(), null);
         return response;
     }
 
-    @Transactional
+    private void loginFailed(LoginMetrics.Failure reason, UUID userId, String username) {
+        loginMetrics.failed(reason);
+        auditLog.record(AuditAction.LOGIN_FAILED, userId, username, reason.name().toLowerCase(Locale.ROOT));
+    }
+
+    // Not @Transactional: the password is hashed before the transaction starts, so no pooled
+    // connection is held while the request waits for the hashing pool
     public UserResponse register(RegisterRequest request) {
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new DuplicateResourceException("User", "username", request.getUsername());
-        }
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new DuplicateResourceException("User", "email", request.getEmail());
-        }
+        checkUnique(request.getUsername(), request.getEmail());
+        String passwordHash = passwordHashing.hash(request.getPassword());
+        return transactionTemplate.execute(status -> {
+            checkUnique(request.getUsername(), request.getEmail());
+            User user = new User(
+                request.getUsername(),
+                passwordHash,
+                request.getName(),
+                request.getEmail(),
+                Role.VIEWER
+            );
 
-        User user = new User(
-            request.getUsername(),
-            request.getPassword(),
-            request.getName(),
-            request.getEmail(),
-            Role.VIEWER
-        );
+            User savedUser = userRepository.save(user);
+            searchIndex.index(savedUser);
+            userStats.recordCreated(savedUser);
+            changeOutbox.userChanged(UserChange.Type.USER_CREATED, savedUser);
+            auditLog.recordAfterCommit(AuditAction.USER_CREATED, savedUser.getId(), savedUser.getUsername(), "role=" + savedUser.getRole() + ",self-registered");
+            return toUserResponse(savedUser);
+        });
+    }
 
-        User savedUser = userRepository.save(user);
-        return toUserResponse(savedUser);
+    // Checked before hashing so a duplicate costs no hash, and again in the transaction that inserts
+    private void checkUnique(String username, String email) {
+        if (userRepository.existsByUsername(username)) {
+            throw new DuplicateResourceException("User", "username", username);
+        }
+        if (userRepository.existsByEmail(email)) {
+            throw new DuplicateResourceException("User", "email", email);
+        }
     }
 
     @Transactional(readOnly = true)
     public List<UserResponse> getAllUsers() {
-        return userRepository.findAllByOrderByCreatedAtDesc()
+        return userRepository.findAllSummaries()
                 .stream()
                 .map(this::toUserResponse)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
+    public UserPage getUsersPage(String cursor, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        Limit fetch = Limit.of(pageSize + 1);
+        List<UserSummary> users;
+        if (cursor == null || cursor.isBlank()) {
+            users = userRepository.findSummaryPage(fetch);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            users = userRepository.findSummaryPageAfter(after.createdAt(), after.id(), fetch);
+        }
+
+        boolean hasMore = users.size() > pageSize;
+        List<UserSummary> page = hasMore ? users.subList(0, pageSize) : users;
+        List<UserResponse> items = page.stream()
+                .map(this::toUserResponse)
+                .collect(Collectors.toList());
+        String nextCursor = hasMore ? PageCursor.of(page.get(pageSize - 1)).encode() : null;
+        return new UserPage(items, nextCursor);
+    }
+
+    /**
+     * Feeds every user to {@code sink} in page order. Pages are read by keyset, each in its own
+     * short read-only transaction, so a slow client holds no connection between pages. Users
+     * created while the stream runs sort before the cursor and are not included.
+     */
+    public void streamAllUsers(Consumer<UserResponse> sink) {
+        Limit fetch = Limit.of(STREAM_PAGE_SIZE);
+        List<UserSummary> page = userRepository.findSummaryPage(fetch);
+        while (true) {
+            page.forEach(user -> sink.accept(toUserResponse(user)));
+            if (page.size() < STREAM_PAGE_SIZE) {
+                return;
+            }
+            UserSummary last = page.get(page.size() - 1);
+            page = userRepository.findSummaryPageAfter(last.createdAt(), last.id(), fetch);
+        }
+    }
+
     public UserResponse getUserById(UUID id) {
-        User user = userRepository.findById(id)
+        CachedUser user = userCache.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
         return toUserResponse(user);
     }
 
-    @Transactional(readOnly = true)
     public UserResponse getUserByUsername(String username) {
-        User user = userRepository.findByUsername(username)
+        CachedUser user = userCache.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
         return toUserResponse(user);
     }
 
-    @Transactional
+    // Hashes before the transaction, like register
     public UserResponse createUser(CreateUserRequest request) {
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new DuplicateResourceException("User", "username", request.getUsername());
-        }
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new DuplicateResourceException("User", "email", request.getEmail());
-        }
+        checkUnique(request.getUsername(), request.getEmail());
+        String passwordHash = passwordHashing.hash(request.getPassword());
+        return transactionTemplate.execute(status -> {
+            checkUnique(request.getUsername(), request.getEmail());
+            User user = new User(
+                request.getUsername(),
+                passwordHash,
+                request.getName(),
+                request.getEmail(),
+                request.getRole() != null ? request.getRole() : Role.VIEWER
+            );
 
-        User user = new User(
-            request.getUsername(),
-            request.getPassword(),
-            request.getName(),
-            request.getEmail(),
-            request.getRole() != null ? request.getRole() : Role.VIEWER
-        );
+            User savedUser = userRepository.save(user);
+            if (savedUser.getRole() == Role.ADMINISTRATOR) {
+                roleCountRepository.add(Role.ADMINISTRATOR, 1);
+            }
+            searchIndex.index(savedUser);
+            userStats.recordCreated(savedUser);
+            changeOutbox.userChanged(UserChange.Type.USER_CREATED, savedUser);
+            auditLog.recordAfterCommit(AuditAction.USER_CREATED, savedUser.getId(), savedUser.getUsername(), "role=" + savedUser.getRole());
+            return toUserResponse(savedUser);
+        });
+    }
 
-        User savedUser = userRepository.save(user);
-        return toUserResponse(savedUser);
+    /**
+     * Applies the update when {@code expectedVersion} is null or still current. The version
+     * check is repeated by Hibernate at flush time, so a write that commits in between fails
+     * with an optimistic locking error instead of being overwritten. A new password is hashed
+     * before the transaction starts.
+     */
+    public UserResponse updateUser(UUID id, UpdateUserRequest request, Long expectedVersion) {
+        String passwordHash = request.getPassword() != null && !request.getPassword().isBlank()
+                ? passwordHashing.hash(request.getPassword())
+                : null;
+        return transactionTemplate.execute(status -> applyUpdate(id, request, expectedVersion, passwordHash));
     }
 
-    @Transactional
-    public UserResponse updateUser(UUID id, UpdateUserRequest request) {
+    private UserResponse applyUpdate(UUID id, UpdateUserRequest request, Long expectedVersion, String passwordHash) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
+        checkVersion(user, expectedVersion);
+        Role previousRole = user.getRole();
+        boolean previouslyActive = user.isActive();
+        List<String> changes = new ArrayList<>(4);
 
         if (request.getName() != null && !request.getName().isBlank()) {
             user.setName(request.getName());
+            changes.add("name");
         }
         if (request.getEmail() != null && !request.getEmail().isBlank()) {
             userRepository.findByEmail(request.getEmail())
@@ -129,77 +294,187 @@ public class UserService {
                         }
                     });
             user.setEmail(request.getEmail());
+            changes.add("email");
         }
-        if (request.getPassword() != null && !request.getPassword().isBlank()) {
-            user.setPassword(request.getPassword());
+        if (passwordHash != null) {
+            user.setPassword(passwordHash);
+            changes.add("password");
         }
         if (request.getIsActive() != null) {
             user.setActive(request.getIsActive());
+            changes.add("active=" + request.getIsActive());
+            if (previouslyActive && !request.getIsActive()) {
+                fenceTokens(user);
+            }
         }
 
-        User updatedUser = userRepository.save(user);
+        // Flush now so the response carries the incremented version
+        User updatedUser = userRepository.saveAndFlush(user);
+        userCache.invalidate(id, updatedUser.getUsername());
+        searchIndex.index(updatedUser);
+        userStats.recordChanged(previousRole, previouslyActive, updatedUser);
+        changeOutbox.userChanged(UserChange.Type.USER_UPDATED, updatedUser);
+        auditLog.recordAfterCommit(AuditAction.USER_UPDATED, id, updatedUser.getUsername(), String.join(",", changes));
         return toUserResponse(updatedUser);
     }
 
     @Transactional
     public void deleteUser(UUID id) {
-        User user = userRepository.findById(id)
+        User user = userRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
-        if (user.getRole() == Role.ADMINISTRATOR) {
-            long adminCount = userRepository.countByRole(Role.ADMINISTRATOR);
-            if (adminCount <= 1) {
-                throw new ValidationException("Cannot delete the last administrator");
-            }
+        if (user.getRole() == Role.ADMINISTRATOR && roleCountRepository.removeUnlessLast(Role.ADMINISTRATOR) == 0) {
+            throw new ValidationException("Cannot delete the last administrator");
         }
 
         userRepository.delete(user);
+        tokenFences.raise(id);
+        userCache.invalidate(id, user.getUsername());
+        searchIndex.remove(id);
+        userStats.recordDeleted(user);
+        changeOutbox.userChanged(UserChange.Type.USER_DELETED, user);
+        auditLog.recordAfterCommit(AuditAction.USER_DELETED, id, user.getUsername(), "role=" + user.getRole());
     }
 
     @Transactional
-    public UserResponse changeUserRole(UUID id, Role newRole) {
-        User user = userRepository.findById(id)
+    public UserResponse changeUserRole(UUID id, Role newRole, Long expectedVersion) {
+        User user = userRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
+        checkVersion(user, expectedVersion);
 
-        if (user.getRole() == Role.ADMINISTRATOR && newRole != Role.ADMINISTRATOR) {
-            long adminCount = userRepository.countByRole(Role.ADMINISTRATOR);
-            if (adminCount <= 1) {
-                throw new ValidationException("Cannot demote the last administrator");
-            }
+        Role previousRole = user.getRole();
+        if (previousRole == newRole) {
+            return toUserResponse(user);
+        }
+        if (previousRole == Role.ADMINISTRATOR && roleCountRepository.removeUnlessLast(Role.ADMINISTRATOR) == 0) {
+            throw new ValidationException("Cannot demote the last administrator");
+        }
+        if (newRole == Role.ADMINISTRATOR) {
+            roleCountRepository.add(Role.ADMINISTRATOR, 1);
         }
 
         user.setRole(newRole);
-        User updatedUser = userRepository.save(user);
+        fenceTokens(user);
+        User updatedUser = userRepository.saveAndFlush(user);
+        userCache.invalidate(id, updatedUser.getUsername());
+        userStats.recordChanged(previousRole, updatedUser.isActive(), updatedUser);
+        changeOutbox.userChanged(UserChange.Type.USER_ROLE_CHANGED, updatedUser);
+        auditLog.recordAfterCommit(AuditAction.USER_ROLE_CHANGED, id, updatedUser.getUsername(), previousRole + "->" + newRole);
         return toUserResponse(updatedUser);
     }
 
+    /**
+     * Assigns a custom role on top of the user's built-in role, or removes it when
+     * {@code customRole} is null.
+     */
+    @Transactional
+    public UserResponse assignCustomRole(UUID id, String customRole, Long expectedVersion) {
+        if (customRole != null && !roleHierarchy.isCustom(customRole)) {
+            throw new ValidationException(roleHierarchy.find(customRole).isPresent()
+                    ? "Role " + customRole + " is a built-in role, change it through the role endpoint"
+                    : "Unknown custom role " + customRole);
+        }
+        User user = userRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
+        checkVersion(user, expectedVersion);
+
+        String previousCustomRole = user.getCustomRole();
+        if (Objects.equals(previousCustomRole, customRole)) {
+            return toUserResponse(user);
+        }
+        user.setCustomRole(customRole);
+        fenceTokens(user);
+        User updatedUser = userRepository.saveAndFlush(user);
+        userCache.invalidate(id, updatedUser.getUsername());
+        changeOutbox.userChanged(UserChange.Type.USER_ROLE_CHANGED, updatedUser);
+        auditLog.recordAfterCommit(AuditAction.USER_ROLE_CHANGED, id, updatedUser.getUsername(),
+                "custom:" + previousCustomRole + "->" + customRole);
+        return toUserResponse(updatedUser);
+    }
+
+    // Tokens issued until now carry the user's old access; see TokenFences
+    private void fenceTokens(User user) {
+        user.setTokensValidAfter(tokenFences.raise(user.getId()));
+    }
+
     @Transactional(readOnly = true)
-    public List<UserResponse> searchUsers(String query) {
-        return userRepository.searchUsers(query)
+    public List<UserResponse> searchUsers(String query, Integer limit) {
+        int maxResults = limit != null ? limit : DEFAULT_SEARCH_LIMIT;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_LIMIT) {
+            throw new ValidationException("limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return searchIndex.search(query, maxResults)
                 .stream()
                 .map(this::toUserResponse)
                 .collect(Collectors.toList());
     }
 
+    public UserStatsResponse getUserStats() {
+        return userStats.current();
+    }
+
     @Transactional(readOnly = true)
-    public List<UserResponse> getUsersByRole(Role role) {
-        return userRepository.findByRole(role)
-                .stream()
-                .map(this::toUserResponse)
-                .collect(Collectors.toList());
+    public void streamUsersByRole(Role role, Consumer<UserResponse> sink) {
+        try (Stream<UserSummary> users = userRepository.streamSummariesByRole(role)) {
+            users.forEach(user -> sink.accept(toUserResponse(user)));
+        }
+    }
+
+    private static void checkVersion(User user, Long expectedVersion) {
+        if (expectedVersion != null && user.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("User " + user.getId() + " has changed, current version is " + user.getVersion());
+        }
+    }
+
+    UserResponse toUserResponse(User user) {
+        return toUserResponse(CachedUser.of(user));
+    }
+
+    private UserResponse toUserResponse(UserView user) {
+        List<String> permissions = user.customRole() == null
+                ? user.role().getPermissions()
+                : roleHierarchy.permissions(user.role(), user.customRole()).names();
+        return toUserResponse(user, permissions);
     }
 
-    private UserResponse toUserResponse(User user) {
+    static UserResponse toUserResponse(UserView user, List<String> permissions) {
         UserResponse response = new UserResponse();
-        response.setId(user.getId());
-        response.setUsername(user.getUsername());
-        response.setName(user.getName());
-        response.setEmail(user.getEmail());
-        response.setRole(user.getRole());
-        response.setPermissions(user.getRole().getPermissions());
-        response.setActive(user.isActive());
-        response.setCreatedAt(user.getCreatedAt());
-        response.setLastLogin(user.getLastLogin());
+        response.setId(user.id());
+        response.setUsername(user.username());
+        response.setName(user.name());
+        response.setEmail(user.email());
+        response.setRole(user.role());
+        response.setCustomRole(user.customRole());
+        response.setPermissions(permissions);
+        response.setActive(user.active());
+        response.setCreatedAt(user.createdAt());
+        response.setLastLogin(user.lastLogin());
+        response.setVersion(user.version());
         return response;
     }
+
+    private record PageCursor(LocalDateTime createdAt, UUID id) {
+
+        static PageCursor of(UserSummary user) {
+            return new PageCursor(user.createdAt(), user.id());
+        }
+
+        static PageCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new ValidationException("Invalid cursor");
+            }
+        }
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
@@ -0,0 +1,275 @@
+package com.rbac.api.service;
+
+import com.rbac.api.cluster.ClusterInvalidation;
+import com.rbac.api.dto.Dtos.UserStatsResponse;
+import com.rbac.api.entity.Role;
+import com.rbac.api.entity.User;
+import com.rbac.api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory snapshot of user counts by role, active flag and last-login bucket. It is loaded
+ * with a single GROUP BY query and then kept current by applying deltas when users are
+ * created, updated or deleted, so reads never touch the database.
+ * <p>
+ * Last-login buckets age with the clock and logins are written behind, so the snapshot is
+ * also recounted on a fixed interval. A transaction that changes the counts tells the other
+ * instances once, whatever the number of users it touched; each schedules a recount after
+ * {@code rbac.stats.users.remote-refresh-delay}, which folds a burst of them into one query.
+ * Other user invalidations, last-login flushes among them, do not trigger a recount.
+ */
+@Component
+public class UserStats {
+
+    private static final Logger log = LoggerFactory.getLogger(UserStats.class);
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    enum LoginBucket {
+        LAST_24_HOURS("last24Hours"),
+        LAST_7_DAYS("last7Days"),
+        LAST_30_DAYS("last30Days"),
+        OLDER("older"),
+        NEVER("never");
+
+        private final String key;
+
+        LoginBucket(String key) {
+            this.key = key;
+        }
+
+        String key() {
+            return key;
+        }
+
+        static LoginBucket of(LocalDateTime lastLogin, LocalDateTime asOf) {
+            if (lastLogin == null) {
+                return NEVER;
+            }
+            if (!lastLogin.isBefore(asOf.minusDays(1))) {
+                return LAST_24_HOURS;
+            }
+            if (!lastLogin.isBefore(asOf.minusDays(7))) {
+                return LAST_7_DAYS;
+            }
+            if (!lastLogin.isBefore(asOf.minusDays(30))) {
+                return LAST_30_DAYS;
+            }
+            return OLDER;
+        }
+    }
+
+    private static final Role[] ROLES = Role.values();
+    private static final LoginBucket[] BUCKETS = LoginBucket.values();
+
+    private final UserRepository userRepository;
+    private final ClusterInvalidation clusterInvalidation;
+    // Bound to a transaction once it has announced a change
+    private final Object announcedKey = new Object();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong mutations = new AtomicLong();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final AtomicBoolean remoteRefreshScheduled = new AtomicBoolean();
+    private final TaskScheduler taskScheduler;
+    private final Duration remoteRefreshDelay;
+
+    public UserStats(UserRepository userRepository, ClusterInvalidation clusterInvalidation, TaskScheduler taskScheduler,
+                     @Value("${rbac.stats.users.remote-refresh-delay:PT30S}") Duration remoteRefreshDelay) {
+        this.userRepository = userRepository;
+        this.clusterInvalidation = clusterInvalidation;
+        this.taskScheduler = taskScheduler;
+        this.remoteRefreshDelay = remoteRefreshDelay;
+        clusterInvalidation.onStatsChanged(this::scheduleRemoteRefresh);
+        clusterInvalidation.onResync(this::scheduleRemoteRefresh);
+    }
+
+    public UserStatsResponse current() {
+        Snapshot current = snapshot.get();
+        return current != null ? current.response() : initialize().response();
+    }
+
+    public void recordCreated(User user) {
+        announce();
+        afterCommit(() -> apply(user.getRole(), user.isActive(), user.getLastLogin(), 1));
+    }
+
+    public void recordDeleted(User user) {
+        announce();
+        afterCommit(() -> apply(user.getRole(), user.isActive(), user.getLastLogin(), -1));
+    }
+
+    public void recordChanged(Role previousRole, boolean previouslyActive, User user) {
+        if (previousRole == user.getRole() && previouslyActive == user.isActive()) {
+            return;
+        }
+        announce();
+        afterCommit(() -> {
+            apply(previousRole, previouslyActive, user.getLastLogin(), -1);
+            apply(user.getRole(), user.isActive(), user.getLastLogin(), 1);
+        });
+    }
+
+    private Snapshot initialize() {
+        loadLock.lock();
+        try {
+            Snapshot current = snapshot.get();
+            return current != null ? current : refresh();
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Recounts from the database. A mutation committed while the query ran may be missing from
+     * its result, so the query is repeated until no delta arrived in between.
+     */
+    Snapshot refresh() {
+        loadLock.lock();
+        try {
+            Snapshot loaded = null;
+            for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+                long before = mutations.get();
+                loaded = load();
+                if (mutations.get() == before) {
+                    break;
+                }
+            }
+            snapshot.set(loaded);
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private Snapshot load() {
+        LocalDateTime asOf = LocalDateTime.now();
+        long[] counts = new long[ROLES.length * 2 * BUCKETS.length];
+        List<Object[]> rows = userRepository.countByRoleActiveAndLastLogin(asOf.minusDays(1), asOf.minusDays(7), asOf.minusDays(30));
+        for (Object[] row : rows) {
+            Role role = (Role) row[0];
+            boolean active = (Boolean) row[1];
+            LoginBucket bucket = BUCKETS[((Number) row[2]).intValue()];
+            counts[index(role, active, bucket)] += ((Number) row[3]).longValue();
+        }
+        return new Snapshot(asOf, counts);
+    }
+
+    private void apply(Role role, boolean active, LocalDateTime lastLogin, long delta) {
+        mutations.incrementAndGet();
+        snapshot.updateAndGet(current -> current == null ? null : current.plus(role, active, lastLogin, delta));
+    }
+
+    // Published inside the transaction, so other instances hear of it on commit and never on rollback
+    private void announce() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            clusterInvalidation.publishStatsChanged();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(announcedKey)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(announcedKey, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(announcedKey);
+            }
+        });
+        clusterInvalidation.publishStatsChanged();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static int index(Role role, boolean active, LoginBucket bucket) {
+        return (role.ordinal() * 2 + (active ? 1 : 0)) * BUCKETS.length + bucket.ordinal();
+    }
+
+    private void scheduleRemoteRefresh() {
+        if (remoteRefreshScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                remoteRefreshScheduled.set(false);
+                refreshQuietly();
+            }, Instant.now().plus(remoteRefreshDelay));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${rbac.stats.users.refresh-interval:PT5M}",
+               fixedDelayString = "${rbac.stats.users.refresh-interval:PT5M}")
+    void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh user statistics, keeping the previous snapshot", e);
+        }
+    }
+
+    record Snapshot(LocalDateTime asOf, long[] counts, UserStatsResponse response) {
+
+        Snapshot(LocalDateTime asOf, long[] counts) {
+            this(asOf, counts, toResponse(asOf, counts));
+        }
+
+        Snapshot plus(Role role, boolean active, LocalDateTime lastLogin, long delta) {
+            long[] next = counts.clone();
+            next[index(role, active, LoginBucket.of(lastLogin, asOf))] += delta;
+            return new Snapshot(asOf, next);
+        }
+
+        private static UserStatsResponse toResponse(LocalDateTime asOf, long[] counts) {
+            Map<Role, Long> byRole = new EnumMap<>(Role.class);
+            Map<String, Long> byLastLogin = new LinkedHashMap<>();
+            long activeCount = 0;
+            long inactiveCount = 0;
+            for (Role role : ROLES) {
+                byRole.put(role, 0L);
+            }
+            for (LoginBucket bucket : BUCKETS) {
+                byLastLogin.put(bucket.key(), 0L);
+            }
+            for (Role role : ROLES) {
+                for (int active = 0; active < 2; active++) {
+                    for (LoginBucket bucket : BUCKETS) {
+                        long count = counts[index(role, active == 1, bucket)];
+                        byRole.merge(role, count, Long::sum);
+                        byLastLogin.merge(bucket.key(), count, Long::sum);
+                        if (active == 1) {
+                            activeCount += count;
+                        } else {
+                            inactiveCount += count;
+                        }
+                    }
+                }
+            }
+            return new UserStatsResponse(activeCount + inactiveCount, activeCount, inactiveCount, byRole, byLastLogin, asOf);
+        }
+    }
+}
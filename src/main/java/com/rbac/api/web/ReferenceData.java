@@ -0,0 +1,36 @@
+package com.rbac.api.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbac.api.dto.Dtos.ApiResponse;
+import com.rbac.api.entity.Role;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Reference data that is fixed at build time, rendered with the application's own
+ * {@link ObjectMapper} at startup so the bytes match what a controller would have produced.
+ */
+@Component
+public class ReferenceData {
+
+    // Clients revalidate after a day; a deployment that changes the data changes the ETag
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
+    private final StaticResource roles;
+
+    public ReferenceData(ObjectMapper objectMapper) throws JsonProcessingException {
+        this.roles = json(objectMapper, ApiResponse.success(Role.values()));
+    }
+
+    public StaticResource roles() {
+        return roles;
+    }
+
+    private static StaticResource json(ObjectMapper objectMapper, Object value) throws JsonProcessingException {
+        return StaticResource.of(objectMapper.writeValueAsBytes(value), MediaType.APPLICATION_JSON, CACHE_CONTROL);
+    }
+}
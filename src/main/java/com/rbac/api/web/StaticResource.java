@@ -0,0 +1,141 @@
+package com.rbac.api.web;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body that never changes while the application runs, rendered once and served as
+ * bytes. The ETag is a hash of the content, and a gzip variant is compressed up front, so
+ * serving it costs neither serialization nor compression. The gzip variant carries its own
+ * strong ETag because it is a different representation.
+ */
+public final class StaticResource {
+
+    private static final String GZIP = "gzip";
+
+    private final byte[] body;
+    private final byte[] gzipBody;
+    private final String etag;
+    private final String gzipEtag;
+    private final MediaType contentType;
+    private final CacheControl cacheControl;
+
+    private StaticResource(byte[] body, MediaType contentType, CacheControl cacheControl) {
+        this.body = body;
+        this.contentType = contentType;
+        this.cacheControl = cacheControl;
+        String hash = hash(body);
+        this.etag = "\"" + hash + "\"";
+        byte[] compressed = gzip(body);
+        // Tiny bodies can grow when compressed; then only the identity encoding is offered
+        this.gzipBody = compressed.length < body.length ? compressed : null;
+        this.gzipEtag = "\"" + hash + "-gz\"";
+    }
+
+    public static StaticResource of(byte[] body, MediaType contentType, CacheControl cacheControl) {
+        return new StaticResource(body.clone(), contentType, cacheControl);
+    }
+
+    public String etag() {
+        return etag;
+    }
+
+    public ResponseEntity<byte[]> respond(String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = gzipBody != null && accepts(acceptEncoding, GZIP);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(gzip ? gzipEtag : etag);
+        headers.setCacheControl(cacheControl);
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        if (matches(ifNoneMatch)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        headers.setContentType(contentType);
+        return new ResponseEntity<>(gzip ? gzipBody : body, headers, HttpStatus.OK);
+    }
+
+    private boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals(coding) && !name.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") && isZero(parameter.substring(2))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isZero(String qvalue) {
+        try {
+            return Double.parseDouble(qvalue) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,6 @@
+-- Trigram indexes make the case-insensitive substring and prefix search on
+-- username and name indexable instead of a sequential scan per keystroke.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users USING gin (lower(name) gin_trgm_ops);
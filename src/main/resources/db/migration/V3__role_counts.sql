@@ -0,0 +1,11 @@
+-- Member count per guarded role. Removing a member is a conditional
+-- UPDATE ... WHERE user_count > 1 on this row, so concurrent deletes and
+-- demotions cannot remove the last administrator, and nothing else locks.
+CREATE TABLE IF NOT EXISTS role_counts (
+    role       VARCHAR(255) PRIMARY KEY,
+    user_count BIGINT NOT NULL
+);
+
+INSERT INTO role_counts (role, user_count)
+SELECT 'ADMINISTRATOR', count(*) FROM users WHERE role = 'ADMINISTRATOR'
+ON CONFLICT (role) DO NOTHING;
@@ -0,0 +1,3 @@
+-- Optimistic locking for users. Every write bumps the version, which is also
+-- exposed to HTTP clients as the ETag of the user resource.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,24 @@
+-- Roles defined at runtime. A custom role inherits from built-in roles
+-- (named by their enum constant) or other custom roles, and grants its own
+-- permissions on top. Parents are not foreign keys because built-in roles
+-- have no rows; the application validates them and rejects cycles.
+CREATE TABLE IF NOT EXISTS custom_roles (
+    name        VARCHAR(50)  PRIMARY KEY,
+    level       INTEGER      NOT NULL,
+    description VARCHAR(255),
+    created_at  TIMESTAMP,
+    updated_at  TIMESTAMP,
+    version     BIGINT       NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS custom_role_parents (
+    role   VARCHAR(50) NOT NULL REFERENCES custom_roles (name) ON DELETE CASCADE,
+    parent VARCHAR(50) NOT NULL,
+    PRIMARY KEY (role, parent)
+);
+
+CREATE TABLE IF NOT EXISTS custom_role_grants (
+    role       VARCHAR(50)  NOT NULL REFERENCES custom_roles (name) ON DELETE CASCADE,
+    permission VARCHAR(100) NOT NULL,
+    PRIMARY KEY (role, permission)
+);
@@ -0,0 +1,19 @@
+-- Append-only audit trail, range-partitioned by month on occurred_at. The
+-- application creates the monthly partitions ahead of time and drops the
+-- ones past retention; the default partition only catches rows that arrive
+-- before their month exists.
+CREATE TABLE IF NOT EXISTS audit_events (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    occurred_at  TIMESTAMPTZ  NOT NULL,
+    action       VARCHAR(40)  NOT NULL,
+    actor_id     UUID,
+    subject_id   UUID,
+    subject_name VARCHAR(100),
+    client       VARCHAR(64),
+    detail       VARCHAR(500),
+    PRIMARY KEY (occurred_at, id)
+) PARTITION BY RANGE (occurred_at);
+
+CREATE TABLE IF NOT EXISTS audit_events_default PARTITION OF audit_events DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_audit_events_subject ON audit_events (subject_id, occurred_at);
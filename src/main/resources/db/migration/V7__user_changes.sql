@@ -0,0 +1,16 @@
+-- Transactional outbox of user and role changes. Rows are written in the
+-- same transaction as the change they describe; the id is the offset that
+-- change feed consumers resume from. Rows older than the retention period
+-- are deleted by the relay.
+CREATE TABLE IF NOT EXISTS user_changes (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    occurred_at TIMESTAMPTZ  NOT NULL,
+    type        VARCHAR(30)  NOT NULL,
+    user_id     UUID,
+    username    VARCHAR(50),
+    role        VARCHAR(50),
+    active      BOOLEAN,
+    version     BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_changes_occurred_at ON user_changes (occurred_at);
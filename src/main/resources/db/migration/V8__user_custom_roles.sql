@@ -0,0 +1,6 @@
+-- A user may hold one custom role on top of their built-in role; its
+-- permissions are added to the built-in role's. The foreign key keeps a role
+-- that is still assigned from being deleted.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS custom_role VARCHAR(50) REFERENCES custom_roles (name);
+
+CREATE INDEX IF NOT EXISTS idx_users_custom_role ON users (custom_role) WHERE custom_role IS NOT NULL;
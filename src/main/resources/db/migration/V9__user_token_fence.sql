@@ -0,0 +1,6 @@
+-- Access tokens carry the user's permissions, so a change that takes access
+-- away must also retire the tokens already issued. Tokens issued to a user
+-- before this epoch second are refused; 0 means none are.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS tokens_valid_after BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_users_tokens_valid_after ON users (tokens_valid_after) WHERE tokens_valid_after > 0;
@@ -0,0 +1,163 @@
+package com.rbac.api;
+
+import com.rbac.api.config.DataInitializer;
+import com.rbac.api.dto.Dtos.LoginRequest;
+import com.rbac.api.service.UserCache;
+import com.rbac.api.service.UserService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Logs in and looks users up on virtual threads while JFR records {@code jdk.VirtualThreadPinned}.
+ * H2 runs as a TCP server so that queries block on a socket as they would against PostgreSQL; with
+ * a two-connection pool and the user cache emptied between rounds, threads really do park on
+ * queries, cache loads and connection checkout. Any park inside a monitor fails the test with the
+ * stack that pinned.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "rbac.search.engine=memory",
+        "logging.level.root=WARN" })
+class VirtualThreadPinningTest {
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final List<String[]> ACCOUNTS = List.of(
+            new String[] { "admin", "admin123" },
+            new String[] { "manager", "manager123" },
+            new String[] { "clerk", "clerk123" },
+            new String[] { "auditor", "auditor123" },
+            new String[] { "viewer", "viewer123" });
+
+    private static Server database;
+
+    @Autowired
+    private DataInitializer dataInitializer;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        database = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        registry.add("spring.datasource.url",
+                () -> "jdbc:h2:tcp://localhost:" + database.getPort() + "/mem:rbac-pinning;DB_CLOSE_DELAY=-1");
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        database.stop();
+    }
+
+    @Test
+    void loginsAndLookupsDoNotPinCarrierThreads() throws Exception {
+        dataInitializer.seeded().get(60, TimeUnit.SECONDS);
+        List<UUID> ids = new ArrayList<>();
+        for (String[] account : ACCOUNTS) {
+            ids.add(userService.login(new LoginRequest(account[0], account[1])).getId());
+        }
+
+        List<RecordedEvent> pinned = record(() -> {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> results = new ArrayList<>();
+                for (int round = 0; round < 10; round++) {
+                    userCache.invalidateAll();
+                    for (int i = 0; i < 100; i++) {
+                        UUID id = ids.get(i % ids.size());
+                        results.add(executor.submit(() -> userService.getUserById(id)));
+                    }
+                }
+                for (int i = 0; i < 20; i++) {
+                    String[] account = ACCOUNTS.get(i % ACCOUNTS.size());
+                    results.add(executor.submit(() -> userService.login(new LoginRequest(account[0], account[1]))));
+                }
+                for (Future<?> result : results) {
+                    result.get(60, TimeUnit.SECONDS);
+                }
+            }
+        });
+
+        assertThat(pinned).as(describe(pinned)).isEmpty();
+    }
+
+    // Guards the test above against passing only because the recording saw nothing
+    @Test
+    void recordingReportsPinnedThreads() throws Exception {
+        Object monitor = new Object();
+        List<RecordedEvent> pinned = record(() -> Thread.ofVirtual().start(() -> {
+            synchronized (monitor) {
+                sleep(Duration.ofMillis(50));
+            }
+        }).join());
+
+        assertThat(pinned).isNotEmpty();
+    }
+
+    private static List<RecordedEvent> record(Workload workload) throws Exception {
+        List<RecordedEvent> events = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent(PINNED, events::add);
+            recording.startAsync();
+            workload.run();
+            // Returns once every event recorded so far has been delivered
+            recording.stop();
+        }
+        return events;
+    }
+
+    private static String describe(List<RecordedEvent> events) {
+        return events.stream()
+                .map(event -> event.getStackTrace() == null ? "(no stack trace)" : event.getStackTrace().getFrames().stream()
+                        .map(VirtualThreadPinningTest::frame)
+                        .collect(Collectors.joining("\n    ", "pinned at\n    ", "")))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Workload {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,146 @@
+package com.rbac.api.controller;
+
+import com.rbac.api.config.DataInitializer;
+import com.rbac.api.dto.Dtos.CreateUserRequest;
+import com.rbac.api.dto.Dtos.LoginRequest;
+import com.rbac.api.dto.Dtos.RoleRequest;
+import com.rbac.api.entity.Role;
+import com.rbac.api.service.RoleService;
+import com.rbac.api.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The user mutation endpoints check the caller's token: creating, updating and deleting users
+ * need their {@code users.*} permission, and changing or assigning a role needs
+ * {@code settings.manage}, also when the role comes in with a new user.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rbac-permissions;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "rbac.search.engine=memory",
+        "logging.level.root=WARN" })
+@AutoConfigureMockMvc
+class UserControllerPermissionsTest {
+
+    private static final String USER_ADMIN_ROLE = "USER_ADMIN";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataInitializer dataInitializer;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RoleService roleService;
+
+    private UUID viewerId;
+
+    @BeforeEach
+    void seeded() throws Exception {
+        dataInitializer.seeded().get(60, TimeUnit.SECONDS);
+        viewerId = userService.getUserByUsername("viewer").getId();
+    }
+
+    @Test
+    void anonymousCallersAreRejected() throws Exception {
+        mockMvc.perform(json(put("/api/users/" + viewerId + "/role"), "{\"role\":\"ADMINISTRATOR\"}"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(delete("/api/users/" + viewerId))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void managerCannotChangeRolesOrManageUsers() throws Exception {
+        String manager = token("manager", "manager123");
+
+        mockMvc.perform(json(put("/api/users/" + viewerId + "/role"), "{\"role\":\"ADMINISTRATOR\"}").header(HttpHeaders.AUTHORIZATION, manager))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(json(post("/api/users"), newUser("mallory", "ADMINISTRATOR")).header(HttpHeaders.AUTHORIZATION, manager))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(json(put("/api/users/" + viewerId), "{\"isActive\":false}").header(HttpHeaders.AUTHORIZATION, manager))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/users/" + viewerId).header(HttpHeaders.AUTHORIZATION, manager))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/users/bulk").contentType(MediaType.APPLICATION_NDJSON).content(newUser("mallory", null))
+                        .header(HttpHeaders.AUTHORIZATION, manager))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void creatingUsersDoesNotGrantRolesWithoutSettingsManage() throws Exception {
+        RoleRequest userAdmin = new RoleRequest();
+        userAdmin.setLevel(3);
+        userAdmin.setDescription("Creates users");
+        userAdmin.setPermissions(List.of("users.create"));
+        roleService.defineRole(USER_ADMIN_ROLE, userAdmin);
+        CreateUserRequest account = new CreateUserRequest();
+        account.setUsername("onboarding");
+        account.setPassword("onboarding123");
+        account.setName("Onboarding");
+        account.setEmail("onboarding@example.com");
+        UUID id = userService.createUser(account).getId();
+        userService.assignCustomRole(id, USER_ADMIN_ROLE, null);
+        String onboarding = token("onboarding", "onboarding123");
+
+        mockMvc.perform(json(post("/api/users"), newUser("eve", "ADMINISTRATOR")).header(HttpHeaders.AUTHORIZATION, onboarding))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(json(post("/api/users"), newUser("erin", null)).header(HttpHeaders.AUTHORIZATION, onboarding))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.data.role").value(Role.VIEWER.name()));
+        mockMvc.perform(post("/api/users/bulk").contentType(MediaType.APPLICATION_NDJSON)
+                        .content(newUser("frank", "MANAGER") + "\n" + newUser("grace", null))
+                        .header(HttpHeaders.AUTHORIZATION, onboarding))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.created").value(1))
+                .andExpect(jsonPath("$.data.failed").value(1))
+                .andExpect(jsonPath("$.data.errors[0].username").value("frank"));
+    }
+
+    @Test
+    void administratorCanChangeRoles() throws Exception {
+        mockMvc.perform(json(put("/api/users/" + viewerId + "/role"), "{\"role\":\"AUDITOR\"}")
+                        .header(HttpHeaders.AUTHORIZATION, token("admin", "admin123")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.role").value(Role.AUDITOR.name()));
+        userService.changeUserRole(viewerId, Role.VIEWER, null);
+    }
+
+    private String token(String username, String password) {
+        return "Bearer " + userService.login(new LoginRequest(username, password)).getAccessToken();
+    }
+
+    private static MockHttpServletRequestBuilder json(MockHttpServletRequestBuilder request, String body) {
+        return request.contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+
+    private static String newUser(String username, String role) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + username + "123\",\"name\":\"" + username
+                + "\",\"email\":\"" + username + "@example.com\"" + (role != null ? ",\"role\":\"" + role + "\"" : "") + "}";
+    }
+}
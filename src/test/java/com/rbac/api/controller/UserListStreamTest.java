@@ -0,0 +1,64 @@
+package com.rbac.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rbac.api.dto.Dtos.UserResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A list that fails part way must not reach the client as a well-formed, shorter list.
+ */
+class UserListStreamTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void completeListIsClosed() throws Exception {
+        RecordingStream out = new RecordingStream();
+        UserListStream.full(objectMapper, sink -> sink.accept(user())).writeTo(out);
+
+        assertThat(out.body()).endsWith("]}");
+        objectMapper.readTree(out.body());
+    }
+
+    @Test
+    void failedListIsLeftUnterminated() {
+        RecordingStream out = new RecordingStream();
+        UserListStream stream = UserListStream.full(objectMapper, sink -> {
+            sink.accept(user());
+            throw new IllegalStateException("page query failed");
+        });
+
+        assertThatThrownBy(() -> stream.writeTo(out)).isInstanceOf(IllegalStateException.class);
+        assertThat(out.body()).doesNotEndWith("]}");
+        assertThatThrownBy(() -> objectMapper.readTree(out.body())).isInstanceOf(Exception.class);
+        assertThat(out.closed).isFalse();
+    }
+
+    private static UserResponse user() {
+        UserResponse user = new UserResponse();
+        user.setId(UUID.randomUUID());
+        user.setUsername("viewer");
+        return user;
+    }
+
+    private static final class RecordingStream extends ByteArrayOutputStream {
+        boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        String body() {
+            return toString(StandardCharsets.UTF_8);
+        }
+    }
+}
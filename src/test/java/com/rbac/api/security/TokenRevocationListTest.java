@@ -0,0 +1,55 @@
+package com.rbac.api.security;
+
+import com.rbac.api.cluster.ClusterInvalidation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationListTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClusterInvalidation clusterInvalidation = new ClusterInvalidation(null, null, meterRegistry, false,
+            "rbac_invalidation", Duration.ofSeconds(10), Duration.ofSeconds(30));
+    private final TokenFences tokenFences = new TokenFences(null, clusterInvalidation, TTL);
+    private final TokenRevocationList revocationList = new TokenRevocationList(tokenFences, meterRegistry, TTL, 2);
+
+    // Overflowing the list used to refuse every token expiring before the evicted one, whoever held it
+    @Test
+    void overflowFencesOnlyTheUserOfTheEvictedRevocation() {
+        long now = Instant.now().getEpochSecond();
+        UUID loggedOut = UUID.randomUUID();
+        UUID bystander = UUID.randomUUID();
+
+        revocationList.revoke(1, loggedOut, now + 60);
+        revocationList.revoke(2, UUID.randomUUID(), now + 120);
+        revocationList.revoke(3, UUID.randomUUID(), now + 180);
+
+        assertThat(revocationList.size()).isEqualTo(2);
+        assertThat(revocationList.isRevoked(1)).isFalse();
+        assertThat(tokenFences.isFenced(loggedOut, now + 60 - TTL.toSeconds())).isTrue();
+        assertThat(tokenFences.isFenced(loggedOut, now)).isFalse();
+        assertThat(tokenFences.isFenced(bystander, now + 30 - TTL.toSeconds())).isFalse();
+        assertThat(meterRegistry.counter("rbac.tokens.revocations.fenced").count()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredRevocationsAreDroppedWithoutFencing() {
+        long now = Instant.now().getEpochSecond();
+        UUID user = UUID.randomUUID();
+
+        revocationList.revoke(1, user, now - 1);
+        revocationList.revoke(2, UUID.randomUUID(), now + 120);
+
+        assertThat(revocationList.isRevoked(1)).isFalse();
+        assertThat(revocationList.isRevoked(2)).isTrue();
+        assertThat(tokenFences.validAfter(user)).isZero();
+        assertThat(meterRegistry.counter("rbac.tokens.revocations.fenced").count()).isZero();
+    }
+}
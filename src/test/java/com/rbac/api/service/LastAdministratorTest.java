@@ -0,0 +1,112 @@
+package com.rbac.api.service;
+
+import com.rbac.api.config.DataInitializer;
+import com.rbac.api.dto.Dtos.CreateUserRequest;
+import com.rbac.api.entity.Role;
+import com.rbac.api.exception.Exceptions.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Races the demotion of one of two administrators against the deletion of the other. Exactly one
+ * of the two may succeed, and {@code role_counts} must still match the users table afterwards.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:rbac-last-admin;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "rbac.search.engine=memory",
+        "rbac.security.password.bcrypt-cost=4",
+        "logging.level.root=WARN" })
+class LastAdministratorTest {
+
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private DataInitializer dataInitializer;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentDemoteAndDeleteLeaveOneAdministrator() throws Exception {
+        dataInitializer.seeded().get(60, TimeUnit.SECONDS);
+        // Flyway creates the counter rows on PostgreSQL; here the schema comes from the entities
+        jdbcTemplate.update("INSERT INTO role_counts (role, user_count) SELECT ?, count(*) FROM users WHERE role = ?",
+                Role.ADMINISTRATOR.name(), Role.ADMINISTRATOR.name());
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            for (int round = 0; round < ROUNDS; round++) {
+                createAdministrator("second-admin-" + round);
+                List<UUID> administrators = administrators();
+                assertThat(administrators).hasSize(2);
+                UUID demoted = administrators.get(round % 2);
+                UUID deleted = administrators.get(1 - round % 2);
+
+                CyclicBarrier start = new CyclicBarrier(2);
+                Future<Boolean> demote = executor.submit(() -> {
+                    start.await();
+                    return succeeded(() -> userService.changeUserRole(demoted, Role.MANAGER, null));
+                });
+                Future<Boolean> delete = executor.submit(() -> {
+                    start.await();
+                    return succeeded(() -> userService.deleteUser(deleted));
+                });
+
+                assertThat(demote.get(30, TimeUnit.SECONDS) ^ delete.get(30, TimeUnit.SECONDS))
+                        .as("exactly one of demote and delete succeeds in round %d", round)
+                        .isTrue();
+                assertThat(administrators()).hasSize(1);
+                assertThat(countedAdministrators()).isEqualTo(1);
+            }
+        }
+    }
+
+    private void createAdministrator(String username) {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername(username);
+        request.setPassword(username + "123");
+        request.setName(username);
+        request.setEmail(username + "@example.com");
+        request.setRole(Role.ADMINISTRATOR);
+        userService.createUser(request);
+    }
+
+    private List<UUID> administrators() {
+        return new ArrayList<>(jdbcTemplate.queryForList("SELECT id FROM users WHERE role = ? ORDER BY username", UUID.class,
+                Role.ADMINISTRATOR.name()));
+    }
+
+    private Long countedAdministrators() {
+        return jdbcTemplate.queryForObject("SELECT user_count FROM role_counts WHERE role = ?", Long.class, Role.ADMINISTRATOR.name());
+    }
+
+    // False when the last-administrator guard refused the change
+    private static boolean succeeded(Runnable change) {
+        try {
+            change.run();
+            return true;
+        } catch (ValidationException e) {
+            return false;
+        }
+    }
+}
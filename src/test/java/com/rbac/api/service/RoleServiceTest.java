@@ -0,0 +1,91 @@
+package com.rbac.api.service;
+
+import com.rbac.api.config.DataInitializer;
+import com.rbac.api.dto.Dtos.CreateUserRequest;
+import com.rbac.api.dto.Dtos.RoleRequest;
+import com.rbac.api.dto.Dtos.UserResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:rbac-roles;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "rbac.search.engine=memory",
+        "logging.level.root=WARN" })
+class RoleServiceTest {
+
+    @Autowired
+    private DataInitializer dataInitializer;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private UserService userService;
+
+    // The ETag of GET /api/users/{id} is the version, and the response lists the role's permissions
+    @Test
+    void redefiningRoleChangesVersionOfHoldersAndOfInheritingHolders() throws Exception {
+        dataInitializer.seeded().get(60, TimeUnit.SECONDS);
+        roleService.defineRole("PACKER", role(List.of(), List.of("inventory.read")));
+        roleService.defineRole("SENIOR_PACKER", role(List.of("PACKER"), List.of("reports.view")));
+        UUID packer = holder("packer", "PACKER");
+        UUID senior = holder("senior", "SENIOR_PACKER");
+        long packerVersion = userService.getUserById(packer).getVersion();
+        long seniorVersion = userService.getUserById(senior).getVersion();
+
+        roleService.defineRole("PACKER", role(List.of(), List.of("inventory.read", "inventory.update")));
+
+        UserResponse packerAfter = userService.getUserById(packer);
+        UserResponse seniorAfter = userService.getUserById(senior);
+        assertThat(packerAfter.getVersion()).isGreaterThan(packerVersion);
+        assertThat(packerAfter.getPermissions()).contains("inventory.update");
+        assertThat(seniorAfter.getVersion()).isGreaterThan(seniorVersion);
+        assertThat(seniorAfter.getPermissions()).contains("inventory.update");
+    }
+
+    @Test
+    void redefiningRoleWithSamePermissionsKeepsVersions() throws Exception {
+        dataInitializer.seeded().get(60, TimeUnit.SECONDS);
+        roleService.defineRole("LABELLER", role(List.of(), List.of("inventory.read")));
+        UUID labeller = holder("labeller", "LABELLER");
+        long version = userService.getUserById(labeller).getVersion();
+
+        RoleRequest described = role(List.of(), List.of("inventory.read"));
+        described.setDescription("Prints labels");
+        roleService.defineRole("LABELLER", described);
+
+        assertThat(userService.getUserById(labeller).getVersion()).isEqualTo(version);
+    }
+
+    private UUID holder(String username, String customRole) {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername(username);
+        request.setPassword(username + "123");
+        request.setName(username);
+        request.setEmail(username + "@example.com");
+        UUID id = userService.createUser(request).getId();
+        userService.assignCustomRole(id, customRole, null);
+        return id;
+    }
+
+    private static RoleRequest role(List<String> parents, List<String> permissions) {
+        RoleRequest request = new RoleRequest();
+        request.setLevel(2);
+        request.setParents(parents);
+        request.setPermissions(permissions);
+        return request;
+    }
+}
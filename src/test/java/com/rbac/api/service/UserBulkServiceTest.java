@@ -0,0 +1,59 @@
+package com.rbac.api.service;
+
+import com.rbac.api.cluster.ClusterInvalidation;
+import com.rbac.api.config.DataInitializer;
+import com.rbac.api.dto.Dtos.BulkImportResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:rbac-bulk;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "rbac.search.engine=memory",
+        "logging.level.root=WARN" })
+class UserBulkServiceTest {
+
+    @Autowired
+    private DataInitializer dataInitializer;
+
+    @Autowired
+    private UserBulkService userBulkService;
+
+    @SpyBean
+    private ClusterInvalidation clusterInvalidation;
+
+    // Every imported row changes the counts, but the other nodes only need to recount once per chunk
+    @Test
+    void importAnnouncesOneStatsChangePerChunk() throws Exception {
+        dataInitializer.seeded().get(60, TimeUnit.SECONDS);
+        String rows = IntStream.range(0, 3)
+                .mapToObj(i -> "{\"username\":\"imported" + i + "\",\"password\":\"imported123\",\"name\":\"Imported " + i
+                        + "\",\"email\":\"imported" + i + "@example.com\"}")
+                .collect(Collectors.joining("\n"));
+        clearInvocations(clusterInvalidation);
+
+        BulkImportResult result = userBulkService.importUsers(new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8)),
+                UserBulkService.Format.NDJSON, true);
+
+        assertThat(result.getCreated()).isEqualTo(3);
+        verify(clusterInvalidation, times(1)).publishStatsChanged();
+    }
+}